@@ -0,0 +1,70 @@
+package com.game.core.cache.benchmark;
+
+import com.game.core.cache.data.Data;
+import com.game.core.cache.mapper.annotation.CacheFiled;
+import com.game.core.cache.mapper.annotation.CacheIndexes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@CacheIndexes(primaryKey = "userId", secondaryKeys = {"itemUniqueId"})
+public class BenchItem extends Data<Long> {
+
+    @CacheFiled(index = 0)
+    private long userId;
+
+    @CacheFiled(index = 1)
+    private long itemUniqueId;
+
+    @CacheFiled(index = 2)
+    private int itemId;
+
+    @CacheFiled(index = 3)
+    private long count;
+
+    @CacheFiled(index = 4)
+    private long gainedCount;
+
+    @CacheFiled(index = 5)
+    private String name;
+
+    @CacheFiled(index = 6)
+    private List<Integer> attrs;
+
+    public BenchItem(long userId, long itemUniqueId, int itemId, long count) {
+        this.userId = userId;
+        this.itemUniqueId = itemUniqueId;
+        this.itemId = itemId;
+        this.count = count;
+        this.gainedCount = count;
+        this.name = "item_" + itemId;
+        this.attrs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            this.attrs.add(itemId * 10 + i);
+        }
+    }
+
+    public BenchItem() {
+        this(0, 0, 0, 0);
+    }
+
+    public void incCount(long count) {
+        this.count += count;
+        this.gainedCount += count;
+        onIndexValueChanged(3);
+        onIndexValueChanged(4);
+    }
+
+    @Override
+    public Long secondaryKey() {
+        return itemUniqueId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
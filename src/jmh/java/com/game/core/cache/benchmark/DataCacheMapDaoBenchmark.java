@@ -0,0 +1,153 @@
+package com.game.core.cache.benchmark;
+
+import com.game.core.cache.CacheUniqueId;
+import com.game.core.cache.ClassConfig;
+import com.game.core.cache.dao.DataDaoBenchmarkUtil;
+import com.game.core.cache.dao.IDataCacheMapDao;
+import com.game.core.cache.key.KeyValueBuilder;
+import com.game.core.cache.source.ICacheDelaySource;
+import com.game.core.cache.source.executor.ICacheSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IDataCacheMapDao 读写热点的基准测试：
+ * 1. 通过 DataDaoManager 组装，数据源是内存替身（MemoryCacheSource/MemoryDelaySource）
+ * 2. hot: 64个主键，启动时已经加载；cold: 65536个主键，首次访问会走加载流程
+ * 3. 线程数 1/8/64 分别对应 Threads1/Threads8/Threads64
+ * 4. 分配速率通过 -prof gc 输出（gradle jmh 默认开启）
+ *
+ * 覆盖的开销：PrimaryDataContainer.lockCurrentMap()、ClassConverter.convert2Cache/convert2Value、CacheSource.cloneValue
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public abstract class DataCacheMapDaoBenchmark {
+
+    private static final int HOT_PRIMARY_COUNT = 64;
+    private static final int COLD_PRIMARY_COUNT = 1 << 16;
+    private static final int ITEM_COUNT = 16;
+    private static final int BATCH_COUNT = 8;
+
+    @Param({"hot", "cold"})
+    public String keyMode;
+
+    @Param({"false", "true"})
+    public boolean delayUpdate;
+
+    private int primaryCount;
+    private IDataCacheMapDao<Long, BenchItem> itemDao;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        boolean hot = "hot".equals(keyMode);
+        this.primaryCount = hot ? HOT_PRIMARY_COUNT : COLD_PRIMARY_COUNT;
+        ClassConfig classConfig = new ClassConfig(BenchItem.class).setName("bench_item").setDelayUpdate(delayUpdate);
+        CacheUniqueId cacheUniqueId = new CacheUniqueId(classConfig, Collections.emptyList());
+        MemoryCacheSource<Long, BenchItem> memorySource = new MemoryCacheSource<>(cacheUniqueId, new KeyValueBuilder.ONE<>());
+        for (long primaryKey = 1; primaryKey <= primaryCount; primaryKey++) {
+            List<BenchItem> itemList = new ArrayList<>(ITEM_COUNT);
+            for (int itemId = 1; itemId <= ITEM_COUNT; itemId++) {
+                itemList.add(new BenchItem(primaryKey, itemId, itemId, 10));
+            }
+            memorySource.replaceBatch(primaryKey, itemList);
+        }
+        ICacheSource<Long, BenchItem> cacheSource = memorySource;
+        if (delayUpdate){
+            ICacheDelaySource<Long, BenchItem> delaySource = memorySource.createDelayUpdateSource(DataDaoBenchmarkUtil.getExecutor());
+            delaySource.start();
+            cacheSource = delaySource;
+        }
+        this.itemDao = DataDaoBenchmarkUtil.createCacheMapDao(cacheSource, memorySource);
+        if (hot){
+            for (long primaryKey = 1; primaryKey <= primaryCount; primaryKey++) {
+                itemDao.getAll(primaryKey);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BatchState {
+
+        private final List<BenchItem> itemList = new ArrayList<>(BATCH_COUNT);
+    }
+
+    @Benchmark
+    public BenchItem get(){
+        return itemDao.get(nextPrimaryKey(), nextItemUniqueId());
+    }
+
+    @Benchmark
+    public Collection<BenchItem> getAll(){
+        return itemDao.getAll(nextPrimaryKey());
+    }
+
+    @Benchmark
+    public Collection<BenchItem> getAllNotCache(){
+        return itemDao.getAllNotCache(nextPrimaryKey());
+    }
+
+    @Benchmark
+    public BenchItem replaceOne(){
+        long primaryKey = nextPrimaryKey();
+        BenchItem item = itemDao.get(primaryKey, nextItemUniqueId());
+        item.incCount(1);
+        return itemDao.replaceOne(primaryKey, item);
+    }
+
+    @Benchmark
+    public List<BenchItem> replaceBatch(BatchState state){
+        long primaryKey = nextPrimaryKey();
+        List<BenchItem> itemList = state.itemList;
+        itemList.clear();
+        long itemUniqueId = nextItemUniqueId();
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            BenchItem item = itemDao.get(primaryKey, (itemUniqueId + i) % ITEM_COUNT + 1);
+            item.incCount(1);
+            itemList.add(item);
+        }
+        itemDao.replaceBatch(primaryKey, itemList);
+        return itemList;
+    }
+
+    private long nextPrimaryKey(){
+        return ThreadLocalRandom.current().nextInt(primaryCount) + 1;
+    }
+
+    private long nextItemUniqueId(){
+        return ThreadLocalRandom.current().nextInt(ITEM_COUNT) + 1;
+    }
+
+    @Threads(1)
+    public static class Threads1 extends DataCacheMapDaoBenchmark {
+    }
+
+    @Threads(8)
+    public static class Threads8 extends DataCacheMapDaoBenchmark {
+    }
+
+    @Threads(64)
+    public static class Threads64 extends DataCacheMapDaoBenchmark {
+    }
+}
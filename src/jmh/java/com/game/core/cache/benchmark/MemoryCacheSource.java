@@ -0,0 +1,90 @@
+package com.game.core.cache.benchmark;
+
+import com.game.core.cache.CacheType;
+import com.game.core.cache.ICacheUniqueId;
+import com.game.core.cache.data.IData;
+import com.game.core.cache.key.IKeyValueBuilder;
+import com.game.core.cache.source.CacheDbSource;
+import com.game.core.cache.source.ICacheDelaySource;
+import com.game.core.cache.source.executor.ICacheExecutor;
+import com.game.core.cache.source.interact.CacheDBCollection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存版本的数据源替身：
+ * 按照数据库的方式保存 convert2Cache 之后的数据，读取的时候走 convert2Value，
+ * 这样基准测试能覆盖真实的编解码开销，但是不依赖Mongo。
+ */
+public class MemoryCacheSource<K, V extends IData<K>> extends CacheDbSource<K, V> {
+
+    private final Map<Long, Map<String, Map<String, Object>>> primaryCacheMap;
+
+    public MemoryCacheSource(ICacheUniqueId cacheUniqueId, IKeyValueBuilder<K> secondaryBuilder) {
+        super(cacheUniqueId, secondaryBuilder);
+        this.primaryCacheMap = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public V get(long primaryKey, K secondaryKey) {
+        Map<String, Object> cacheValue = primaryCacheMap(primaryKey).get(keyValueBuilder.toSecondaryKeyString(secondaryKey));
+        return cacheValue == null ? null : converter.convert2Value(cacheValue);
+    }
+
+    @Override
+    public List<V> getAll(long primaryKey) {
+        return converter.convert2ValueList(primaryCacheMap(primaryKey).values());
+    }
+
+    @Override
+    public CacheDBCollection getPrimaryCollection(long primaryKey) {
+        return new CacheDBCollection(new ArrayList<>(primaryCacheMap(primaryKey).values()));
+    }
+
+    @Override
+    public boolean replaceOne(long primaryKey, V value) {
+        Map<String, Object> cacheValue = converter.convert2Cache(value);
+        primaryCacheMap(primaryKey).put(keyValueBuilder.toSecondaryKeyString(value.secondaryKey()), cacheValue);
+        return true;
+    }
+
+    @Override
+    public boolean replaceBatch(long primaryKey, Collection<V> values) {
+        for (V value : values) {
+            replaceOne(primaryKey, value);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteOne(long primaryKey, K secondaryKey) {
+        primaryCacheMap(primaryKey).remove(keyValueBuilder.toSecondaryKeyString(secondaryKey));
+        return true;
+    }
+
+    @Override
+    public boolean deleteBatch(long primaryKey, Collection<K> secondaryKeys) {
+        for (K secondaryKey : secondaryKeys) {
+            deleteOne(primaryKey, secondaryKey);
+        }
+        return true;
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return CacheType.MongoDb;
+    }
+
+    @Override
+    public ICacheDelaySource<K, V> createDelayUpdateSource(ICacheExecutor executor) {
+        return new MemoryDelaySource<>(this, executor);
+    }
+
+    private Map<String, Map<String, Object>> primaryCacheMap(long primaryKey){
+        return primaryCacheMap.computeIfAbsent(primaryKey, key -> new ConcurrentHashMap<>());
+    }
+}
@@ -0,0 +1,41 @@
+package com.game.core.cache.benchmark;
+
+import com.game.core.cache.CacheType;
+import com.game.core.cache.data.IData;
+import com.game.core.cache.source.CacheDelaySource;
+import com.game.core.cache.source.KeyDataValue;
+import com.game.core.cache.source.PrimaryDelayCache;
+import com.game.core.cache.source.executor.ICacheExecutor;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 内存版本的延迟回写数据源替身，回写直接落到 MemoryCacheSource
+ */
+public class MemoryDelaySource<K, V extends IData<K>> extends CacheDelaySource<K, V> {
+
+    public MemoryDelaySource(MemoryCacheSource<K, V> cacheSource, ICacheExecutor executor) {
+        super(cacheSource, executor);
+    }
+
+    @Override
+    protected Map<Long, PrimaryDelayCache<K, V>> executeWritePrimaryCache(Map<Long, PrimaryDelayCache<K, V>> primaryCacheMap) {
+        for (Map.Entry<Long, PrimaryDelayCache<K, V>> entry : primaryCacheMap.entrySet()) {
+            for (KeyDataValue<K, V> keyDataValue : entry.getValue().getAll()) {
+                if (keyDataValue.isDeleted()) {
+                    getCacheSource().deleteOne(entry.getKey(), keyDataValue.getKey());
+                }
+                else {
+                    getCacheSource().replaceOne(entry.getKey(), keyDataValue.getDataValue());
+                }
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return getCacheSource().getCacheType();
+    }
+}
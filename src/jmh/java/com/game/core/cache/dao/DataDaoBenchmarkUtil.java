@@ -0,0 +1,29 @@
+package com.game.core.cache.dao;
+
+import com.game.core.cache.data.DataSourceUtil;
+import com.game.core.cache.data.IData;
+import com.game.core.cache.data.IDataLifePredicate;
+import com.game.core.cache.data.IDataSource;
+import com.game.core.cache.data.map.DataMapContainer;
+import com.game.core.cache.source.executor.ICacheExecutor;
+import com.game.core.cache.source.executor.ICacheSource;
+
+/**
+ * 基准测试使用：按照 DataMapDaoBuilder.getCacheInstance 的方式组装Dao，
+ * 但是数据源由外部传入（内存替身），不依赖Mongo/Redis。
+ */
+public class DataDaoBenchmarkUtil {
+
+    public static ICacheExecutor getExecutor(){
+        return DataDaoManager.getInstance().getExecutor();
+    }
+
+    public static <K, V extends IData<K>> IDataCacheMapDao<K, V> createCacheMapDao(ICacheSource<K, V> cacheSource, ICacheSource<K, V> directSource){
+        DataDaoManager daoManager = DataDaoManager.getInstance();
+        IDataSource<K, V> dataSource = DataSourceUtil.createDataSource(cacheSource);
+        DataMapContainer<K, V> container = new DataMapContainer<>(dataSource, IDataLifePredicate.DEFAULT, daoManager.getExecutor());
+        IDataSource<K, V> dataSource0 = DataSourceUtil.createDataSource(directSource);
+        DataCacheMapDao<K, V> cacheMapDao = new DataCacheMapDao<>(dataSource0, container);
+        return daoManager.addCacheMapDao(cacheMapDao);
+    }
+}
@@ -7,4 +7,25 @@ public interface ISyncLock extends Comparable {
     boolean tryLock(long milliseconds);
 
     void unlock();
+
+    /**
+     * 共享锁，不支持的时候等于 tryLock
+     * @param milliseconds
+     * @return
+     */
+    default boolean tryReadLock(long milliseconds){
+        return tryLock(milliseconds);
+    }
+
+    default void unlockRead(){
+        unlock();
+    }
+
+    /**
+     * 持有写锁（互斥锁）的线程，用于超时的时候打印堆栈
+     * @return 不支持或者没有持有的时候返回null
+     */
+    default Thread getOwner(){
+        return null;
+    }
 }
@@ -10,6 +10,16 @@ public class LockKey {
 
     private final String primary;
     private final String secondary;
+    /**
+     * 数字键值（主键），不转换成字符串
+     */
+    private final long id;
+    private final boolean hasId;
+    private final int hash;
+    /**
+     * 统计分组：数字键值按照父键值，其他按照业务名字（开启统计之后第一次使用的时候创建）
+     */
+    private LockKey statisticKey;
 
     /**
      *
@@ -19,6 +29,19 @@ public class LockKey {
     private LockKey(String primary, String secondary) {
         this.primary = primary;
         this.secondary = secondary;
+        this.id = 0;
+        this.hasId = false;
+        this.hash = hash(primary, secondary);
+        this.statisticKey = secondary == null ? this : null;
+    }
+
+    private LockKey(LockKey parent, long id) {
+        this.primary = parent.primary;
+        this.secondary = parent.getSecondary();
+        this.id = id;
+        this.hasId = true;
+        this.hash = hash(parent, id);
+        this.statisticKey = parent;
     }
 
     public LockKey(String primary) {
@@ -30,20 +53,44 @@ public class LockKey {
     }
 
     public String getSecondary() {
-        return secondary;
+        if (!hasId){
+            return secondary;
+        }
+        return secondary == null ? String.valueOf(id) : secondary + "." + id;
+    }
+
+    public LockKey statisticKey(){
+        LockKey statisticKey = this.statisticKey;
+        if (statisticKey == null){
+            //并发创建的是相等的键值，不需要加锁
+            statisticKey = new LockKey(primary);
+            this.statisticKey = statisticKey;
+        }
+        return statisticKey;
     }
 
     public LockKey createLockKey(String secondary){
-        if (this.secondary == null){
+        String parentSecondary = getSecondary();
+        if (parentSecondary == null){
             return new LockKey(primary, secondary);
         }
         else {
-            return new LockKey(primary, String.format("%s.%s", this.secondary, secondary));
+            return new LockKey(primary, parentSecondary + "." + secondary);
         }
     }
 
+    /**
+     * 和 createLockKey(String.valueOf(id)) 是不同的键值
+     * @param id
+     * @return
+     */
+    public LockKey createLockKey(long id){
+        return new LockKey(this, id);
+    }
+
     public String toLockName(){
-        return secondary == null ? primary : String.format("%s.%s", primary, secondary);
+        String name = getSecondary();
+        return name == null ? primary : primary + "." + name;
     }
 
     @Override
@@ -51,23 +98,38 @@ public class LockKey {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         LockKey lockKey = (LockKey) o;
-        return Objects.equals(primary, lockKey.primary) &&
+        return hash == lockKey.hash && hasId == lockKey.hasId && id == lockKey.id &&
+                Objects.equals(primary, lockKey.primary) &&
                 Objects.equals(secondary, lockKey.secondary);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(primary, secondary);
+        return hash;
     }
 
     @Override
     public String toString() {
         return "{" +
                 "primary='" + primary + '\'' +
-                ", secondary='" + secondary + '\'' +
+                ", secondary='" + getSecondary() + '\'' +
                 '}';
     }
 
+    private static int hash(String primary, String secondary){
+        return 31 * primary.hashCode() + (secondary == null ? 0 : secondary.hashCode());
+    }
+
+    /**
+     * 等于 parent.createLockKey(id).hashCode()，不需要创建对象
+     * @param parent
+     * @param id
+     * @return
+     */
+    static int hash(LockKey parent, long id){
+        return 31 * parent.hash + Long.hashCode(id);
+    }
+
     public static LockKey systemLockKey(String name){
         return new LockKey(SYSTEM_PREFIX + name);
     }
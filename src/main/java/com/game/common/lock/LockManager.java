@@ -1,25 +1,100 @@
 package com.game.common.lock;
 
+import com.game.common.config.EvnCoreConfigs;
+import com.game.common.config.EvnCoreType;
+import com.game.common.config.IEvnConfig;
 import com.game.common.util.ConcurrentWeakReferenceMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class LockManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(LockManager.class);
+
     /**
      * key: 业务的键值，默认不会无限膨胀
      *
      */
     private static final Map<String, ConcurrentWeakReferenceMap<LockKey, ISyncLock>> name2LockMap = new ConcurrentHashMap<>();
 
+    /**
+     * 读写锁或者互斥锁（分段锁的时候只能是互斥锁）
+     */
+    private static final Function<LockKey, ISyncLock> lockCreator = createLockCreator();
+
+    /**
+     * 分段锁：固定数量，不创建锁对象也不清理引用队列；不同的键值可能共用一把锁（可重入）
+     * null表示每个键值一把锁
+     */
+    private static final ISyncLock[] stripedLocks = createStripedLocks();
 
     public static ISyncLock getSyncLock(LockKey lockKey) {
+        if (stripedLocks != null){
+            return stripedLocks[stripeIndex(lockKey.hashCode(), stripedLocks.length)];
+        }
         ConcurrentWeakReferenceMap<LockKey, ISyncLock> referenceMap = getReferenceMap(lockKey);
-        return referenceMap.computeIfAbsent(lockKey, SyncLock.ReentrantSyncLock::new);
+        return referenceMap.computeIfAbsent(lockKey, lockCreator);
+    }
+
+    /**
+     * 等于 getSyncLock(parentKey.createLockKey(id))
+     * 只有开启分段锁的时候不创建键值；每个键值一把锁（默认）的时候依然创建LockKey并查找弱引用表
+     * @param parentKey
+     * @param id
+     * @return
+     */
+    public static ISyncLock getSyncLock(LockKey parentKey, long id) {
+        if (stripedLocks != null){
+            return stripedLocks[stripeIndex(LockKey.hash(parentKey, id), stripedLocks.length)];
+        }
+        return getSyncLock(parentKey.createLockKey(id));
     }
 
     private static ConcurrentWeakReferenceMap<LockKey, ISyncLock> getReferenceMap(LockKey lockKey){
         return name2LockMap.computeIfAbsent(lockKey.getPrimary(), key-> new ConcurrentWeakReferenceMap<>());
     }
+
+    /**
+     * @param hash 键值的hashCode
+     * @param length 2的幂
+     * @return
+     */
+    private static int stripeIndex(int hash, int length){
+        hash ^= (hash >>> 16);
+        return hash & (length - 1);
+    }
+
+    private static Function<LockKey, ISyncLock> createLockCreator(){
+        IEvnConfig lockConfig = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getConfig("lock");
+        if (lockConfig != null && lockConfig.getBoolean("readWrite")){
+            if (lockConfig.getBoolean("striped")){
+                //不同键值共用一把读写锁的时候，嵌套读或者读之后写会一直等到超时
+                logger.error("lock.readWrite can not combine with lock.striped, use exclusive lock.");
+                return SyncLock.ReentrantSyncLock::new;
+            }
+            return SyncLock.StampedSyncLock::new;
+        }
+        return SyncLock.ReentrantSyncLock::new;
+    }
+
+    private static ISyncLock[] createStripedLocks(){
+        IEvnConfig lockConfig = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getConfig("lock");
+        if (lockConfig == null || !lockConfig.getBoolean("striped")){
+            return null;
+        }
+        int stripeCount = Math.max(1, lockConfig.getInt("stripeCount"));
+        int length = Integer.highestOneBit(stripeCount);
+        if (length < stripeCount){
+            length <<= 1;
+        }
+        ISyncLock[] syncLocks = new ISyncLock[length];
+        for (int i = 0; i < length; i++) {
+            syncLocks[i] = new SyncLock.StripedSyncLock(i, lockCreator);
+        }
+        return syncLocks;
+    }
 }
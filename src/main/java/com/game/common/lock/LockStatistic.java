@@ -0,0 +1,208 @@
+package com.game.common.lock;
+
+import com.game.common.config.EvnCoreConfigs;
+import com.game.common.config.EvnCoreType;
+import com.game.common.config.IEvnConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 锁的统计：等待时间、持有时间的分布和超时次数，按照 LockKey.statisticKey() 分组
+ * 超时的时候按照间隔采样打印持有锁的线程堆栈
+ */
+public class LockStatistic {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockStatistic.class);
+
+    static final boolean ENABLE;
+    /**
+     * 持有时间超过之后打印警告
+     */
+    private static final long WARN_NANOS;
+    /**
+     * 同一组锁超时堆栈的采样间隔
+     */
+    private static final long TRACE_INTERVAL;
+    static {
+        IEvnConfig lockConfig = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getConfig("lock");
+        ENABLE = lockConfig != null && lockConfig.getBoolean("statistic");
+        WARN_NANOS = ENABLE ? lockConfig.getDuration("warnTime", TimeUnit.NANOSECONDS) : Long.MAX_VALUE;
+        TRACE_INTERVAL = ENABLE ? lockConfig.getDuration("traceInterval", TimeUnit.MILLISECONDS) : Long.MAX_VALUE;
+    }
+
+    private static final ConcurrentHashMap<LockKey, LockStatistic> statisticMap = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final Histogram waitHistogram;
+    private final Histogram holdHistogram;
+    private final LongAdder timeoutCount;
+    private final AtomicLong lastTraceTime;
+
+    private LockStatistic(String name) {
+        this.name = name;
+        this.waitHistogram = new Histogram();
+        this.holdHistogram = new Histogram();
+        this.timeoutCount = new LongAdder();
+        this.lastTraceTime = new AtomicLong(0);
+    }
+
+    static LockStatistic get(LockKey statisticKey){
+        LockStatistic statistic = statisticMap.get(statisticKey);
+        if (statistic == null){
+            statistic = statisticMap.computeIfAbsent(statisticKey, key -> new LockStatistic(key.toLockName()));
+        }
+        return statistic;
+    }
+
+    public static Collection<LockStatistic> getAll(){
+        return new ArrayList<>(statisticMap.values());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Histogram getWaitHistogram() {
+        return waitHistogram;
+    }
+
+    public Histogram getHoldHistogram() {
+        return holdHistogram;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    void onLocked(long waitNanos){
+        waitHistogram.record(waitNanos);
+    }
+
+    void onUnlocked(long holdNanos, String message){
+        holdHistogram.record(holdNanos);
+        if (holdNanos >= WARN_NANOS){
+            logger.warn("lock:{} hold:{}(ms), message:{}", name, TimeUnit.NANOSECONDS.toMillis(holdNanos), message);
+        }
+    }
+
+    /**
+     * @param syncLock 没有拿到的锁
+     * @param waitNanos
+     * @param message
+     */
+    void onTimeout(ISyncLock syncLock, long waitNanos, String message){
+        timeoutCount.increment();
+        waitHistogram.record(waitNanos);
+        long currentTime = System.currentTimeMillis();
+        long lastTime = lastTraceTime.get();
+        if (currentTime - lastTime < TRACE_INTERVAL || !lastTraceTime.compareAndSet(lastTime, currentTime)){
+            return;
+        }
+        Thread owner = syncLock.getOwner();
+        StringBuilder builder = new StringBuilder();
+        if (owner == null){
+            builder.append("unknown");      //读锁或者已经释放
+        }
+        else {
+            builder.append(owner.getName());
+            for (StackTraceElement element : owner.getStackTrace()) {
+                builder.append("\n\tat ").append(element);
+            }
+        }
+        logger.error("lock:{} syncLock:{} timeout:{}(ms), message:{}, count:{}, owner:{}", name, syncLock.getLockKey(), TimeUnit.NANOSECONDS.toMillis(waitNanos), message, timeoutCount.sum(), builder, new Exception());
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "name='" + name + '\'' +
+                ", wait=" + waitHistogram +
+                ", hold=" + holdHistogram +
+                ", timeoutCount=" + timeoutCount.sum() +
+                '}';
+    }
+
+    /**
+     * 按照2的幂（微秒）分桶，百分位是桶的上界
+     */
+    public static final class Histogram {
+
+        private static final int BUCKET_COUNT = 40;
+
+        private final AtomicLongArray buckets;
+        private final LongAdder count;
+        private final LongAdder sumNanos;
+        private final LongAccumulator maxNanos;
+
+        private Histogram() {
+            this.buckets = new AtomicLongArray(BUCKET_COUNT);
+            this.count = new LongAdder();
+            this.sumNanos = new LongAdder();
+            this.maxNanos = new LongAccumulator(Long::max, 0);
+        }
+
+        private void record(long nanos){
+            long micros = Math.max(0, nanos / 1000);
+            int index = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(index);
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMeanMicros() {
+            long count = this.count.sum();
+            return count == 0 ? 0 : sumNanos.sum() / count / 1000;
+        }
+
+        public long getMaxMicros() {
+            return maxNanos.get() / 1000;
+        }
+
+        /**
+         * @param percent 0-100
+         * @return
+         */
+        public long getPercentileMicros(double percent){
+            long total = 0;
+            long[] counts = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long threshold = (long)Math.ceil(total * percent / 100);
+            long current = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                current += counts[i];
+                if (current >= threshold && current > 0){
+                    return i == 0 ? 0 : 1L << i;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "count=" + getCount() +
+                    ", mean=" + getMeanMicros() +
+                    ", p50=" + getPercentileMicros(50) +
+                    ", p99=" + getPercentileMicros(99) +
+                    ", max=" + getMaxMicros() +
+                    "(us)}";
+        }
+    }
+}
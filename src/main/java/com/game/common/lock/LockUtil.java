@@ -5,7 +5,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
@@ -33,12 +32,23 @@ import java.util.stream.Collectors;
 public class LockUtil {
 
     private static final long MILLISECONDS = 500L;
-    private static final long WARN_TIME = 500L;
 
     private static final Logger logger = LoggerFactory.getLogger(LockUtil.class);
 
     public static boolean syncLock(LockKey lockKey, String message, Runnable runnable){
-        return syncLock(Collections.singleton(lockKey), MILLISECONDS, message, runnable);
+        return syncLock(LockManager.getSyncLock(lockKey), statisticKey(lockKey), false, MILLISECONDS, message, runnable);
+    }
+
+    /**
+     * 主键的锁，等于 syncLock(parentKey.createLockKey(primaryKey), message, runnable)
+     * @param parentKey
+     * @param primaryKey
+     * @param message
+     * @param runnable
+     * @return
+     */
+    public static boolean syncLock(LockKey parentKey, long primaryKey, String message, Runnable runnable){
+        return syncLock(LockManager.getSyncLock(parentKey, primaryKey), parentKey, false, MILLISECONDS, message, runnable);
     }
 
     public static boolean syncLock(Collection<LockKey> lockKeys, String message, Runnable runnable){
@@ -54,7 +64,27 @@ public class LockUtil {
     }
 
     public static <T> T syncLock(LockKey lockKey, String message, Callable<T> callable){
-        return syncLock(Collections.singleton(lockKey), MILLISECONDS, message, callable);
+        return syncLock(LockManager.getSyncLock(lockKey), statisticKey(lockKey), false, MILLISECONDS, message, callable);
+    }
+
+    public static <T> T syncLock(LockKey parentKey, long primaryKey, String message, Callable<T> callable){
+        return syncLock(LockManager.getSyncLock(parentKey, primaryKey), parentKey, false, MILLISECONDS, message, callable);
+    }
+
+    /**
+     * 读锁：只读的操作之间不互斥，和 syncLock 互斥
+     * @param lockKey
+     * @param message
+     * @param callable
+     * @param <T>
+     * @return
+     */
+    public static <T> T syncReadLock(LockKey lockKey, String message, Callable<T> callable){
+        return syncLock(LockManager.getSyncLock(lockKey), statisticKey(lockKey), true, MILLISECONDS, message, callable);
+    }
+
+    public static <T> T syncReadLock(LockKey parentKey, long primaryKey, String message, Callable<T> callable){
+        return syncLock(LockManager.getSyncLock(parentKey, primaryKey), parentKey, true, MILLISECONDS, message, callable);
     }
 
     public static <T> T syncLock(Collection<LockKey> lockKeys, String message, Callable<T> callable){
@@ -62,21 +92,22 @@ public class LockUtil {
     }
 
     public static <T> T syncLock(Collection<LockKey> lockKeys, long milliseconds, String message, Callable<T> callable){
-        long current0 = System.currentTimeMillis();
+        if (lockKeys.size() == 1){
+            LockKey lockKey = lockKeys.iterator().next();
+            return syncLock(LockManager.getSyncLock(lockKey), statisticKey(lockKey), false, milliseconds, message, callable);
+        }
+        //批量的按照第一个键值统计
+        LockKey statisticKey = lockKeys.isEmpty() ? null : statisticKey(lockKeys.iterator().next());
+        long startTime = LockStatistic.ENABLE ? System.nanoTime() : 0;
         List<ISyncLock> syncLockList = lockKeys.stream().map(LockManager::getSyncLock).collect(Collectors.toList());
-        if (!tryLockAll(syncLockList, milliseconds)) {
-//            logger.error("lock:{} failure, message:{}", lockKeys, message, new Exception());
+        ISyncLock failureLock = tryLockAll(syncLockList, milliseconds);
+        if (failureLock != null) {
+            onTimeout(statisticKey, failureLock, startTime, message);
             return null;
         }
+        long lockTime = onLocked(statisticKey, startTime);
         try {
-            long current1 = System.currentTimeMillis();
-            T value = callable.call();
-            long current2 = System.currentTimeMillis();
-            long duration = current2 - current0;
-            if (duration >= WARN_TIME){
-//                logger.warn("lock:{} time:{}, call duration:{}(ms), message:{}", lockKeys, current1 - current0, duration, message, new Exception());
-            }
-            return value;
+            return callable.call();
         }
         catch (Throwable t){
             logger.error("lock:{} exception, message:{}", lockKeys, message, t);
@@ -84,12 +115,118 @@ public class LockUtil {
         }
         finally {
             unlockAll(syncLockList);
+            onUnlocked(statisticKey, lockTime, message);
+        }
+    }
+
+    /**
+     * 单个锁不需要排序，也不创建列表
+     */
+    private static boolean syncLock(ISyncLock syncLock, LockKey statisticKey, boolean read, long milliseconds, String message, Runnable runnable){
+        long startTime = LockStatistic.ENABLE ? System.nanoTime() : 0;
+        if (!tryLock(syncLock, read, milliseconds)) {
+            onTimeout(statisticKey, syncLock, startTime, message);
+            return false;
+        }
+        long lockTime = onLocked(statisticKey, startTime);
+        try {
+            runnable.run();
+            return true;
+        }
+        catch (Throwable t){
+            logger.error("lock:{} exception, message:{}", syncLock.getLockKey(), message, t);
+            return false;
+        }
+        finally {
+            unlock(syncLock, read);
+            onUnlocked(statisticKey, lockTime, message);
+        }
+    }
+
+    private static <T> T syncLock(ISyncLock syncLock, LockKey statisticKey, boolean read, long milliseconds, String message, Callable<T> callable){
+        long startTime = LockStatistic.ENABLE ? System.nanoTime() : 0;
+        if (!tryLock(syncLock, read, milliseconds)) {
+            onTimeout(statisticKey, syncLock, startTime, message);
+            return null;
+        }
+        long lockTime = onLocked(statisticKey, startTime);
+        try {
+            return callable.call();
+        }
+        catch (Throwable t){
+            logger.error("lock:{} exception, message:{}", syncLock.getLockKey(), message, t);
+            return null;
+        }
+        finally {
+            unlock(syncLock, read);
+            onUnlocked(statisticKey, lockTime, message);
+        }
+    }
+
+    /**
+     * @return 加锁的时间，没有开启统计的时候为0
+     */
+    /**
+     * 没有开启统计的时候不创建统计的键值
+     * @param lockKey
+     * @return
+     */
+    private static LockKey statisticKey(LockKey lockKey){
+        return LockStatistic.ENABLE ? lockKey.statisticKey() : null;
+    }
+
+    private static long onLocked(LockKey statisticKey, long startTime){
+        if (!LockStatistic.ENABLE || statisticKey == null){
+            return 0;
+        }
+        long lockTime = System.nanoTime();
+        LockStatistic.get(statisticKey).onLocked(lockTime - startTime);
+        return lockTime;
+    }
+
+    private static void onUnlocked(LockKey statisticKey, long lockTime, String message){
+        if (LockStatistic.ENABLE && statisticKey != null){
+            LockStatistic.get(statisticKey).onUnlocked(System.nanoTime() - lockTime, message);
+        }
+    }
+
+    private static void onTimeout(LockKey statisticKey, ISyncLock syncLock, long startTime, String message){
+        if (LockStatistic.ENABLE && statisticKey != null){
+            LockStatistic.get(statisticKey).onTimeout(syncLock, System.nanoTime() - startTime, message);
+        }
+    }
+
+    private static boolean tryLock(ISyncLock syncLock, boolean read, long milliseconds){
+        return read ? syncLock.tryReadLock(milliseconds) : syncLock.tryLock(milliseconds);
+    }
+
+    private static void unlock(ISyncLock syncLock, boolean read){
+        try {
+            if (read){
+                syncLock.unlockRead();
+            }
+            else {
+                syncLock.unlock();
+            }
+        }
+        catch (Throwable t) {
+            logger.error("lock:{} unlock error.", syncLock.getLockKey(), t);
         }
     }
 
-    private static <T extends ISyncLock> boolean tryLockAll(List<T> syncLockList, long milliseconds) {
+    /**
+     * @return 加锁失败的锁，全部成功返回null
+     */
+    private static <T extends ISyncLock> T tryLockAll(List<T> syncLockList, long milliseconds) {
         syncLockList.sort(ISyncLock::compareTo);
+        //分段锁的时候不同的键值可能是同一把锁
+        for (int i = syncLockList.size() - 1; i > 0; i--) {
+            if (syncLockList.get(i) == syncLockList.get(i - 1)){
+                syncLockList.remove(i);
+            }
+        }
         List<T> lockedSyncLockList = new ArrayList<>();
+        T failureLock = null;
         RuntimeException exception = null;
         try {
             for (T syncLock : syncLockList) {
@@ -98,6 +235,7 @@ public class LockUtil {
                     logger.trace("lock:{} lock success.", syncLock.getLockKey());
                 }
                 else {
+                    failureLock = syncLock;
                     break;
                 }
             }
@@ -105,13 +243,13 @@ public class LockUtil {
             exception = e;
         }
         if (syncLockList.size() == lockedSyncLockList.size()){
-            return true;
+            return null;
         }
         rollback(lockedSyncLockList);
         if (exception != null){
             throw exception;
         }
-        return false;
+        return failureLock;
     }
 
     private static <T extends ISyncLock> void rollback(List<T> syncLockList){
@@ -5,6 +5,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
 
 public abstract class SyncLock implements ISyncLock {
 
@@ -38,11 +40,11 @@ public abstract class SyncLock implements ISyncLock {
 
     public static class ReentrantSyncLock extends SyncLock{
 
-       private final ReentrantLock reentrantLock;
+       private final OwnerReentrantLock reentrantLock;
 
         public ReentrantSyncLock(LockKey lockKey) {
             super(lockKey);
-            this.reentrantLock = new ReentrantLock();
+            this.reentrantLock = new OwnerReentrantLock();
         }
 
         @Override
@@ -60,5 +62,147 @@ public abstract class SyncLock implements ISyncLock {
         public void unlock() {
             reentrantLock.unlock();
         }
+
+        @Override
+        public Thread getOwner() {
+            return reentrantLock.getOwner();
+        }
+    }
+
+    private static final class OwnerReentrantLock extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Thread getOwner() {
+            return super.getOwner();
+        }
+    }
+
+    /**
+     * 读写锁：读锁之间不互斥；写锁可重入，持有写锁的线程可以再加读锁
+     * 持有读锁的线程不能再加写锁，读锁也不能重入（有写锁等待时会阻塞），所以不能和分段锁一起使用
+     */
+    public static class StampedSyncLock extends SyncLock{
+
+        private final StampedLock stampedLock;
+        /**
+         * 写锁的线程和重入次数，只有持有写锁的线程修改
+         */
+        private volatile Thread owner;
+        private int holdCount;
+
+        public StampedSyncLock(LockKey lockKey) {
+            super(lockKey);
+            this.stampedLock = new StampedLock();
+        }
+
+        @Override
+        public boolean tryLock(long milliseconds) {
+            Thread thread = Thread.currentThread();
+            if (owner == thread){
+                holdCount++;
+                return true;
+            }
+            try {
+                if (stampedLock.tryWriteLock(milliseconds, TimeUnit.MILLISECONDS) == 0){
+                    return false;
+                }
+                owner = thread;
+                holdCount = 1;
+                return true;
+            }
+            catch (InterruptedException e) {
+                logger.error("stampedLock:{} failure.", getLockKey(), e);
+            }
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            if (owner != Thread.currentThread()){
+                throw new IllegalMonitorStateException();
+            }
+            if (--holdCount == 0){
+                owner = null;
+                stampedLock.tryUnlockWrite();
+            }
+        }
+
+        @Override
+        public boolean tryReadLock(long milliseconds) {
+            if (owner == Thread.currentThread()){
+                holdCount++;        //写锁内读
+                return true;
+            }
+            try {
+                return stampedLock.tryReadLock(milliseconds, TimeUnit.MILLISECONDS) != 0;
+            }
+            catch (InterruptedException e) {
+                logger.error("stampedLock:{} read failure.", getLockKey(), e);
+            }
+            return false;
+        }
+
+        @Override
+        public void unlockRead() {
+            if (owner == Thread.currentThread()){
+                unlock();
+                return;
+            }
+            if (!stampedLock.tryUnlockRead()){
+                throw new IllegalMonitorStateException();
+            }
+        }
+
+        @Override
+        public Thread getOwner() {
+            return owner;
+        }
+    }
+
+    /**
+     * 分段锁，多个键值共用；按照下标排序加锁
+     */
+    public static class StripedSyncLock extends SyncLock{
+
+        private final int index;
+        private final ISyncLock syncLock;
+
+        public StripedSyncLock(int index, Function<LockKey, ISyncLock> creator) {
+            super(LockKey.systemLockKey("stripe").createLockKey(String.valueOf(index)));
+            this.index = index;
+            this.syncLock = creator.apply(getLockKey());
+        }
+
+        @Override
+        public boolean tryLock(long milliseconds) {
+            return syncLock.tryLock(milliseconds);
+        }
+
+        @Override
+        public void unlock() {
+            syncLock.unlock();
+        }
+
+        @Override
+        public boolean tryReadLock(long milliseconds) {
+            return syncLock.tryReadLock(milliseconds);
+        }
+
+        @Override
+        public void unlockRead() {
+            syncLock.unlockRead();
+        }
+
+        @Override
+        public Thread getOwner() {
+            return syncLock.getOwner();
+        }
+
+        @Override
+        public int compareTo(Object o) {
+            return Integer.compare(index, ((StripedSyncLock) o).index);
+        }
     }
 }
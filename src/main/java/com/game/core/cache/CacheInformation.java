@@ -28,9 +28,25 @@ public class CacheInformation {
         return expiredTime != -1 && currentTime + getOffsetDuration() >= expiredTime;
     }
 
+    /**
+     * 缓存需要重新加载的时间点，currentTime小于该值时 isExpired(currentTime) 必然为false
+     * @return
+     */
+    public long getReloadTime(){
+        return expiredTime == -1 ? Long.MAX_VALUE : expiredTime - getOffsetDuration();
+    }
+
     public boolean needUpdateExpired(long currentTime){
         this.checkCurrentOrExpiredTime(currentTime);
-        return expiredTime != -1 && (expiredTime - getOffsetDuration() * 2) <= currentTime;
+        return expiredTime != -1 && getUpdateExpiredTime() <= currentTime;
+    }
+
+    /**
+     * 需要延长过期时间的时间点，不会过期时返回Long.MAX_VALUE
+     * @return
+     */
+    public long getUpdateExpiredTime(){
+        return expiredTime == -1 ? Long.MAX_VALUE : expiredTime - getOffsetDuration() * 2;
     }
 
     public long getExpiredTime(){
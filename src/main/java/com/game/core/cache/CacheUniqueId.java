@@ -66,6 +66,16 @@ public class CacheUniqueId implements ICacheUniqueId {
 		return classConfig.getVersionId();
 	}
 
+	@Override
+	public long getMaximumSize() {
+		return classConfig.getMaximumSize();
+	}
+
+	@Override
+	public boolean isWeighValueCount() {
+		return classConfig.isWeighValueCount();
+	}
+
 	@Override
 	public IClassConfig cloneConfig() {
 		return classConfig.cloneConfig();
@@ -17,6 +17,8 @@ public class ClassConfig implements IClassConfig {
     private boolean redisSupport;
     private boolean delayUpdate;
     private int versionId;
+    private long maximumSize;
+    private boolean weighValueCount;
 
 
     public ClassConfig(Class<?> aClass) {
@@ -27,6 +29,8 @@ public class ClassConfig implements IClassConfig {
         this.redisSupport = false;
         this.versionId = 1;
         this.delayUpdate = false;
+        this.maximumSize = 0;
+        this.weighValueCount = false;
     }
 
     @SuppressWarnings("unchecked")
@@ -104,6 +108,36 @@ public class ClassConfig implements IClassConfig {
         return this;
     }
 
+    @Override
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * 常驻内存的主键数据上限，超过之后按照分段LRU淘汰（淘汰之前会先回写），0表示不限制
+     * @param maximumSize
+     * @return
+     */
+    public ClassConfig setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    @Override
+    public boolean isWeighValueCount() {
+        return weighValueCount;
+    }
+
+    /**
+     * maximumSize 是否按照主键下二级数据的数量计算，false表示按照主键个数计算
+     * @param weighValueCount
+     * @return
+     */
+    public ClassConfig setWeighValueCount(boolean weighValueCount) {
+        this.weighValueCount = weighValueCount;
+        return this;
+    }
+
     @Override
     public ClassConfig cloneConfig() {
         ClassConfig classConfig = new ClassConfig(aClass);
@@ -114,6 +148,8 @@ public class ClassConfig implements IClassConfig {
         classConfig.redisSupport = redisSupport;
         classConfig.delayUpdate = delayUpdate;
         classConfig.versionId = versionId;
+        classConfig.maximumSize = maximumSize;
+        classConfig.weighValueCount = weighValueCount;
         return classConfig;
     }
 
@@ -127,6 +163,8 @@ public class ClassConfig implements IClassConfig {
                 ", redisSupport=" + redisSupport +
                 ", delayUpdate=" + delayUpdate +
                 ", versionId=" + versionId +
+                ", maximumSize=" + maximumSize +
+                ", weighValueCount=" + weighValueCount +
                 '}';
     }
 
@@ -139,6 +177,8 @@ public class ClassConfig implements IClassConfig {
                 redisSupport == that.redisSupport &&
                 delayUpdate == that.delayUpdate &&
                 versionId == that.versionId &&
+                maximumSize == that.maximumSize &&
+                weighValueCount == that.weighValueCount &&
                 Objects.equals(aClass, that.aClass) &&
                 cacheType == that.cacheType &&
                 Objects.equals(name, that.name);
@@ -18,5 +18,9 @@ public interface IClassConfig {
 
 	int getVersionId();
 
+	long getMaximumSize();
+
+	boolean isWeighValueCount();
+
 	IClassConfig cloneConfig();
 }
@@ -9,6 +9,8 @@ import com.game.common.lock.LockUtil;
 import com.game.common.util.Holder;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 class DataCacheMapDao<K, V extends IData<K>> implements IDataCacheMapDao<K, V> {
@@ -55,11 +57,21 @@ class DataCacheMapDao<K, V extends IData<K>> implements IDataCacheMapDao<K, V> {
         return mapContainer.getAll(primaryKey);
     }
 
+    @Override
+    public Map<Long, Collection<V>> getAll(Collection<Long> primaryKeys) {
+        return mapContainer.getAll(primaryKeys);
+    }
+
+    @Override
+    public CompletableFuture<Collection<V>> getAllAsync(long primaryKey) {
+        return mapContainer.getAllAsync(primaryKey);
+    }
+
     @Override
     public Collection<V> getAllNotCache(long primaryKey) {
         Collection<V> values = mapContainer.getAllNoCache(primaryKey);
         if (values == null){
-            values  = LockUtil.syncLock(dataSource.getLockKey(primaryKey), "getAllNotCache", () -> dataSource.getAll(primaryKey));
+            values  = LockUtil.syncReadLock(dataSource.getLockKey(), primaryKey, "getAllNotCache", () -> dataSource.getAll(primaryKey));
             if (values != null){
             }
             else {
@@ -89,6 +101,11 @@ class DataCacheMapDao<K, V extends IData<K>> implements IDataCacheMapDao<K, V> {
         mapContainer.replaceBatch(primaryKey, values);
     }
 
+    @Override
+    public CompletableFuture<Void> replaceBatchAsync(long primaryKey, Collection<V> values) {
+        return mapContainer.replaceBatchAsync(primaryKey, values);
+    }
+
     @Override
     public V deleteOne(long primaryKey, K secondaryKey) {
         return mapContainer.removeOne(primaryKey, secondaryKey);
@@ -41,7 +41,7 @@ class DataCacheValueDao<V extends IData<Long>> implements IDataCacheValueDao<V>
         if (holder != null){
             return holder.getValue();
         }
-        holder = LockUtil.syncLock(dataSource.getLockKey(primaryKey), "getAllNotCache", () -> new Holder<>(dataSource.get(primaryKey, primaryKey)));
+        holder = LockUtil.syncReadLock(dataSource.getLockKey(), primaryKey, "getAllNotCache", () -> new Holder<>(dataSource.get(primaryKey, primaryKey)));
         if (holder == null){
             throw new CacheException("primaryKey:%s getNotCache error", primaryKey);
         }
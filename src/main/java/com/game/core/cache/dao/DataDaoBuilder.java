@@ -9,6 +9,7 @@ import com.game.core.cache.data.IData;
 import com.game.core.cache.data.IDataLifePredicate;
 import com.game.core.cache.exception.CacheException;
 import com.game.core.cache.key.IKeyValueBuilder;
+import com.game.core.cache.source.ICacheDelaySource;
 import com.game.core.cache.source.compose.CacheComposeSource;
 import com.game.core.cache.source.executor.ICacheSource;
 import com.game.core.cache.source.redis.ICacheRedisSource;
@@ -81,7 +82,9 @@ public class DataDaoBuilder <K, V extends IData<K>> {
 
 	private ICacheSource<K, V> changeIfDelayCacheSource(ICacheSource<K, V> cacheSource){
 		if (cacheSource.getCacheUniqueId().isDelayUpdate()){
-			cacheSource = cacheSource.createDelayUpdateSource(daoManager.getExecutor());
+			ICacheDelaySource<K, V> delaySource = cacheSource.createDelayUpdateSource(daoManager.getExecutor());
+			delaySource.start();
+			cacheSource = delaySource;
 		}
 		return cacheSource;
 	}
@@ -3,10 +3,34 @@ package com.game.core.cache.dao;
 import com.game.core.cache.data.IData;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface IDataCacheMapDao<K, V extends IData<K>> extends IDataMapDao<K, V>, IDataCacheDao{
 
     V getNotCache(long primaryKey, K secondaryKey);
 
     Collection<V> getAllNotCache(long primaryKey);
+
+    /**
+     * 批量获取多个主键的数据（公会成员、排行榜等），没有加载的主键合并成一次查询
+     * @param primaryKeys
+     * @return 按照primaryKeys的顺序
+     */
+    Map<Long, Collection<V>> getAll(Collection<Long> primaryKeys);
+
+    /**
+     * 异步获取，同时请求的主键合并成批量查询（登录高峰）
+     * @param primaryKey
+     * @return
+     */
+    CompletableFuture<Collection<V>> getAllAsync(long primaryKey);
+
+    /**
+     * 异步替换，数据源的操作在缓存线程中执行
+     * @param primaryKey
+     * @param values
+     * @return
+     */
+    CompletableFuture<Void> replaceBatchAsync(long primaryKey, Collection<V> values);
 }
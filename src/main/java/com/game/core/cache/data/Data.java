@@ -56,7 +56,7 @@ public abstract class Data<K> implements IData<K> {
         if (uniqueId > DataBitIndex.MaximumIndex){
             throw new UnsupportedOperationException(String.valueOf(uniqueId));
         }
-        dataBitIndexBits = dataBitIndexBits | (1 << uniqueId);
+        dataBitIndexBits = dataBitIndexBits | (1L << uniqueId);
     }
 
     @Override
@@ -81,5 +81,6 @@ public abstract class Data<K> implements IData<K> {
             throw new CacheException("currentTime==%s", currentTime);
         }
         deleteTime = currentTime;
+        onIndexValueChanged(DataBitIndex.MaximumIndex);
     }
 }
@@ -10,6 +10,11 @@ public class DataBitIndex {
      */
     public static final int MaximumIndex = 60;
 
+    /**
+     * 字段变化的标记位（0 ~ MaximumIndex），回写时只写变化的字段
+     */
+    public static final long FieldIndexBits = (1L << (MaximumIndex + 1)) - 1;
+
     /***
      */
     public static final int RedisChangeIndex = 61;
@@ -1,18 +1,34 @@
 package com.game.core.cache.data;
 
+import com.game.common.config.EvnCoreConfigs;
+import com.game.common.config.EvnCoreType;
+import com.game.common.config.IEvnConfig;
 import com.game.common.util.RandomUtil;
 import com.game.core.cache.CacheInformation;
+import com.game.core.cache.ICacheUniqueId;
+import com.game.core.cache.source.executor.CacheCallable;
 import com.game.core.cache.source.executor.CacheRunnable;
+import com.game.core.cache.source.executor.CacheTimingWheel;
 import com.game.core.cache.source.executor.ICacheExecutor;
 import com.game.common.util.Holder;
+import com.game.common.lock.LockKey;
+import com.game.common.lock.LockUtil;
 import org.apache.commons.lang3.RandomUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class DataContainer<K, V extends IData<K>> implements IDataContainer<K, V> {
@@ -20,19 +36,49 @@ public class DataContainer<K, V extends IData<K>> implements IDataContainer<K, V
     private static final Logger logger = LoggerFactory.getLogger(DataContainer.class);
 
     private static final CacheInformation INIT_INFO = new CacheInformation();
+    private static final long SCHEDULE_PERIOD = 1000L;
 
     private final IDataSource<K, V> dataSource;
     private final IDataLifePredicate loadPredicate;
     private ConcurrentHashMap<Long, IPrimaryDataContainer<K, V>> primaryDataMap;
+    /**
+     * 没有配置上限和空闲时间时为null
+     */
+    private final DataEvictionPolicy<K, V> evictionPolicy;
+    /**
+     * 需要延长过期时间的数据按照时间点注册，每次只处理到期的
+     */
+    private final CacheTimingWheel<IPrimaryDataContainer<K, V>> timingWheel;
+    private final ICacheExecutor executor;
+    /**
+     * 等待异步加载的主键，同一个主键只加载一次
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<Collection<V>>> asyncLoadMap;
+    /**
+     * 同时只有一个加载任务，每次取出一批主键合并查询
+     */
+    private final AtomicBoolean asyncLoading;
 
     public DataContainer(IDataSource<K, V> dataSource, IDataLifePredicate loadPredicate, ICacheExecutor executor) {
         this.dataSource = dataSource;
         this.loadPredicate = loadPredicate;
         this.primaryDataMap = new ConcurrentHashMap<>();
+        this.executor = executor;
+        this.asyncLoadMap = new ConcurrentHashMap<>();
+        this.asyncLoading = new AtomicBoolean(false);
+        ICacheUniqueId cacheUniqueId = dataSource.getCacheUniqueId();
+        long idleDuration = loadIdleDuration();
+        if (cacheUniqueId.getMaximumSize() > 0 || idleDuration > 0){
+            this.evictionPolicy = new DataEvictionPolicy<>(cacheUniqueId.getMaximumSize(), cacheUniqueId.isWeighValueCount(), idleDuration);
+        }
+        else {
+            this.evictionPolicy = null;
+        }
         //初始化~
         String name = "dataContainer." + dataSource.getCacheUniqueId().getName();
         long initialDelay = RandomUtil.nextLong(1000, 2000) / 50;
-        executor.scheduleAtFixedRate(new CacheRunnable(name, this::onScheduleAll), initialDelay, 1000L, TimeUnit.MILLISECONDS);
+        this.timingWheel = new CacheTimingWheel<>(SCHEDULE_PERIOD, System.currentTimeMillis());
+        executor.scheduleAtFixedRate(new CacheRunnable(name, this::onScheduleAll), initialDelay, SCHEDULE_PERIOD, TimeUnit.MILLISECONDS);
     }
 
 
@@ -43,12 +89,12 @@ public class DataContainer<K, V extends IData<K>> implements IDataContainer<K, V
 
     @Override
     public int count(long primaryKey) {
-        return primaryDataContainer(primaryKey).count();
+        return retryEvicted(primaryKey, IPrimaryDataContainer::count);
     }
 
     @Override
     public V get(long primaryKey, K secondaryKey) {
-        return  primaryDataContainer(primaryKey).get(secondaryKey);
+        return retryEvicted(primaryKey, container -> container.get(secondaryKey));
     }
 
     @Override
@@ -57,7 +103,13 @@ public class DataContainer<K, V extends IData<K>> implements IDataContainer<K, V
         if (primaryDataContainer == null){
             return null;
         }
-        V value = primaryDataContainer.get(secondaryKey);
+        V value;
+        try {
+            value = primaryDataContainer.get(secondaryKey);
+        }
+        catch (EvictedContainerException e){
+            return null;    //读的过程中被淘汰，当作没有缓存
+        }
         if (value != null){
             value = dataSource.cloneValue(value);
         }
@@ -66,7 +118,136 @@ public class DataContainer<K, V extends IData<K>> implements IDataContainer<K, V
 
     @Override
     public Collection<V> getAll(long primaryKey) {
-        return primaryDataContainer(primaryKey).getAll();
+        return retryEvicted(primaryKey, IPrimaryDataContainer::getAll);
+    }
+
+    @Override
+    public Map<Long, Collection<V>> getAll(Collection<Long> primaryKeys) {
+        long currentTime = System.currentTimeMillis();
+        Map<Long, IPrimaryDataContainer<K, V>> containerMap = new LinkedHashMap<>(primaryKeys.size());
+        List<IPrimaryDataContainer<K, V>> loadContainerList = new ArrayList<>();
+        for (long primaryKey : primaryKeys) {
+            IPrimaryDataContainer<K, V> container = primaryDataContainer(primaryKey);
+            if (containerMap.put(primaryKey, container) == null && !container.isLoaded(currentTime) && !loadPredicate.isNewLife(primaryKey)){
+                loadContainerList.add(container);
+            }
+        }
+        if (!loadContainerList.isEmpty()){
+            loadContainers(loadContainerList);
+        }
+        Map<Long, Collection<V>> valuesMap = new LinkedHashMap<>(containerMap.size());
+        containerMap.forEach((primaryKey, container) -> {
+            try {
+                valuesMap.put(primaryKey, container.getAll());
+            }
+            catch (EvictedContainerException e){
+                valuesMap.put(primaryKey, getAll(primaryKey));
+            }
+        });
+        return valuesMap;
+    }
+
+    /**
+     * 一次锁住所有需要加载的主键（按顺序加锁，不会死锁），一次批量查询
+     * 已经被其他线程加载的数据直接丢弃
+     * @param loadContainerList
+     */
+    private void loadContainers(List<IPrimaryDataContainer<K, V>> loadContainerList){
+        List<LockKey> lockKeys = loadContainerList.stream().map(container -> dataSource.getLockKey(container.primaryKey())).collect(Collectors.toList());
+        boolean isSuccess = LockUtil.syncLock(lockKeys, "getAll", () -> {
+            long currentTime = System.currentTimeMillis();
+            List<Long> primaryKeyList = loadContainerList.stream().filter(container -> !container.isEvicted() && !container.isLoaded(currentTime))
+                    .map(IPrimaryDataContainer::primaryKey).collect(Collectors.toList());
+            if (primaryKeyList.isEmpty()){
+                return;
+            }
+            Map<Long, DataCollection<K, V>> collectionMap = dataSource.getCollections(primaryKeyList);
+            for (IPrimaryDataContainer<K, V> container : loadContainerList) {
+                DataCollection<K, V> collection = collectionMap.get(container.primaryKey());
+                if (collection != null){
+                    container.loadCollection(collection);
+                }
+            }
+        });
+        if (!isSuccess){
+            //批量加载失败的在getAll的时候逐个加载
+            logger.error("primaryKeys:{} batch load error.", lockKeys);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Collection<V>> getAllAsync(long primaryKey) {
+        IPrimaryDataContainer<K, V> container = primaryDataContainer(primaryKey);
+        if (container.isLoaded(System.currentTimeMillis()) || loadPredicate.isNewLife(primaryKey)){
+            return CompletableFuture.completedFuture(retryEvicted(primaryKey, container, IPrimaryDataContainer::getAll));
+        }
+        CompletableFuture<Collection<V>> future = asyncLoadMap.computeIfAbsent(primaryKey, key -> new CompletableFuture<>());
+        if (asyncLoading.compareAndSet(false, true)){
+            String name = "dataContainer.async." + dataSource.getCacheUniqueId().getName();
+            executor.submit(new CacheCallable<>(name, this::onAsyncLoad, null));
+        }
+        return future;
+    }
+
+    /**
+     * 登录高峰的时候大量主键在这里合并成少量的批量查询，不需要每个请求占用一个线程
+     * @return
+     */
+    private boolean onAsyncLoad(){
+        int batchCount = Math.max(1, EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getInt("data.asyncBatchCount"));
+        while (true){
+            List<Long> primaryKeyList = new ArrayList<>(Math.min(batchCount, asyncLoadMap.size()));
+            for (Long primaryKey : asyncLoadMap.keySet()) {
+                if (primaryKeyList.size() >= batchCount){
+                    break;
+                }
+                primaryKeyList.add(primaryKey);
+            }
+            if (primaryKeyList.isEmpty()){
+                asyncLoading.set(false);
+                //释放标记之后新加入的主键
+                if (asyncLoadMap.isEmpty() || !asyncLoading.compareAndSet(false, true)){
+                    return true;
+                }
+                continue;
+            }
+            Map<Long, Collection<V>> valuesMap = null;
+            Throwable throwable = null;
+            try {
+                valuesMap = getAll(primaryKeyList);
+            }
+            catch (Throwable t){
+                throwable = t;
+                logger.error("primaryKeys:{} async load error.", primaryKeyList, t);
+            }
+            for (Long primaryKey : primaryKeyList) {
+                CompletableFuture<Collection<V>> future = asyncLoadMap.remove(primaryKey);
+                if (throwable != null){
+                    future.completeExceptionally(throwable);
+                }
+                else {
+                    future.complete(valuesMap.get(primaryKey));
+                }
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> replaceBatchAsync(long primaryKey, Collection<V> values) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        //按照主键串行，同一个主键的替换按照提交的顺序执行
+        String name = "dataContainer.replace." + dataSource.getCacheUniqueId().getName() + "." + primaryKey;
+        executor.submit(new CacheCallable<>(name, () -> {
+            try {
+                replaceBatch(primaryKey, values);
+                future.complete(null);
+            }
+            catch (Throwable t){
+                future.completeExceptionally(t);
+            }
+            return true;
+        }, null));
+        return future;
     }
 
     @Override
@@ -75,27 +256,38 @@ public class DataContainer<K, V extends IData<K>> implements IDataContainer<K, V
         if (primaryDataContainer == null){
             return null;
         }
-        return primaryDataContainer.getAll().stream().map(dataSource::cloneValue).collect(Collectors.toList());
+        try {
+            return primaryDataContainer.getAll().stream().map(dataSource::cloneValue).collect(Collectors.toList());
+        }
+        catch (EvictedContainerException e){
+            return null;
+        }
     }
 
     @Override
     public V replaceOne(long primaryKey, V value) {
-        return primaryDataContainer(primaryKey).replaceOne(value);
+        return retryEvicted(primaryKey, container -> container.replaceOne(value));
     }
 
     @Override
     public void replaceBatch(long primaryKey, Collection<V> values) {
-        primaryDataContainer(primaryKey).replaceBatch(values);
+        retryEvicted(primaryKey, container -> {
+            container.replaceBatch(values);
+            return null;
+        });
     }
 
     @Override
     public V removeOne(long primaryKey, K secondaryKeys) {
-        return primaryDataContainer(primaryKey).removeOne(secondaryKeys);
+        return retryEvicted(primaryKey, container -> container.removeOne(secondaryKeys));
     }
 
     @Override
     public void removeBatch(long primaryKey, Collection<K> secondaryKeys) {
-        primaryDataContainer(primaryKey).removeBatch(secondaryKeys);
+        retryEvicted(primaryKey, container -> {
+            container.removeBatch(secondaryKeys);
+            return null;
+        });
     }
 
     @Override
@@ -108,19 +300,99 @@ public class DataContainer<K, V extends IData<K>> implements IDataContainer<K, V
         dataSource.flushOne(primaryKey, currentTime, consumer);
     }
 
+    private <R> R retryEvicted(long primaryKey, Function<IPrimaryDataContainer<K, V>, R> function){
+        return retryEvicted(primaryKey, primaryDataContainer(primaryKey), function);
+    }
+
+    /**
+     * 拿到容器之后等锁的过程中容器可能被淘汰，淘汰的容器不能再读写（数据会丢失），重新获取新的容器执行
+     * @param primaryKey
+     * @param container
+     * @param function
+     * @param <R>
+     * @return
+     */
+    private <R> R retryEvicted(long primaryKey, IPrimaryDataContainer<K, V> container, Function<IPrimaryDataContainer<K, V>, R> function){
+        while (true){
+            try {
+                return function.apply(container);
+            }
+            catch (EvictedContainerException e){
+                container = primaryDataContainer(primaryKey);
+            }
+        }
+    }
+
     private IPrimaryDataContainer<K, V> primaryDataContainer(long primaryKey){
-        return primaryDataMap.computeIfAbsent(primaryKey, key -> new PrimaryDataContainer<>(key, dataSource, loadPredicate));
+        if (evictionPolicy == null){
+            return primaryDataMap.computeIfAbsent(primaryKey, key -> new PrimaryDataContainer<>(key, dataSource, loadPredicate, timingWheel));
+        }
+        IPrimaryDataContainer<K, V> container = primaryDataMap.computeIfAbsent(primaryKey, key -> {
+            IPrimaryDataContainer<K, V> newContainer = new PrimaryDataContainer<>(key, dataSource, loadPredicate, timingWheel);
+            evictionPolicy.onCreate(newContainer);
+            return newContainer;
+        });
+        evictionPolicy.onAccess(container);
+        return container;
     }
 
     private void onScheduleAll(){
         long currentTime = System.currentTimeMillis();
-        for (IPrimaryDataContainer<K, V> container : primaryDataMap.values()) {
+        timingWheel.advance(currentTime, container -> {
+            if (primaryDataMap.get(container.primaryKey()) != container){
+                return;     //已经移除了
+            }
             try {
                 container.onSchedule(currentTime);
             }
             catch (Throwable t){
                 logger.error("primaryKey:{} onSchedule error.", container.primaryKey());
             }
+        });
+        if (evictionPolicy != null){
+            onScheduleEvict(currentTime);
+        }
+    }
+
+    private static long loadIdleDuration(){
+        IEvnConfig dataConfig = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getConfig("data");
+        if (dataConfig == null || !dataConfig.hasPath("idleDuration")){
+            return 0;
+        }
+        return dataConfig.getDuration("idleDuration", TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 超过上限或者空闲过期的数据先回写，回写成功之后才从内存中移除，失败的放回淘汰队列等待下次
+     * @param currentTime
+     */
+    private void onScheduleEvict(long currentTime){
+        List<IPrimaryDataContainer<K, V>> victims = evictionPolicy.drainAndEvict(currentTime);
+        for (IPrimaryDataContainer<K, V> container : victims) {
+            long primaryKey = container.primaryKey();
+            try {
+                dataSource.flushOne(primaryKey, currentTime, success -> {
+                    Boolean removed = null;
+                    if (success){
+                        removed = LockUtil.syncLock(dataSource.getLockKey(), primaryKey, "evict", (Callable<Boolean>) () -> {
+                            //锁内标记淘汰，已经拿到容器在等锁的读写看到标记之后重新获取
+                            if (primaryDataMap.remove(primaryKey, container)){
+                                container.markEvicted();
+                                return true;
+                            }
+                            return false;
+                        });
+                    }
+                    if (removed == null){
+                        evictionPolicy.reinstate(container);
+                        logger.error("primaryKey:{} evict flush or remove error.", primaryKey);
+                    }
+                });
+            }
+            catch (Throwable t){
+                evictionPolicy.reinstate(container);
+                logger.error("primaryKey:{} evict error.", primaryKey, t);
+            }
         }
     }
 }
@@ -0,0 +1,227 @@
+package com.game.core.cache.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 分段LRU（probation + protected）淘汰策略，同时负责空闲过期
+ * 访问记录写入有损的环形缓冲区（不加锁，冲突时直接覆盖），由定时任务统一回放，
+ * 读路径上不会出现全局锁竞争
+ * @param <K>
+ * @param <V>
+ */
+class DataEvictionPolicy<K, V extends IData<K>> {
+
+    private static final int READ_BUFFER_SIZE = 1024;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    /**
+     * protected段占总容量的比例
+     */
+    private static final double PROTECTED_RATIO = 0.8D;
+    /**
+     * 访问记录可能丢失，队列头部不一定是最久没有访问的，每次最多跳过的数量
+     */
+    private static final int IDLE_SKIP_COUNT = 16;
+
+    private final long maximumSize;
+    private final long protectedMaximumSize;
+    private final boolean weighValueCount;
+    private final long idleDuration;
+    private final AtomicReferenceArray<IPrimaryDataContainer<K, V>> readBuffer;
+    /**
+     * 按照访问顺序排列，头部是最久没有访问的
+     */
+    private final LinkedHashMap<Long, Node<K, V>> probation;
+    private final LinkedHashMap<Long, Node<K, V>> protect;
+    private long probationSize;
+    private long protectSize;
+
+    /**
+     * @param maximumSize 0表示不限制数量
+     * @param weighValueCount
+     * @param idleDuration 0表示不按照空闲时间过期
+     */
+    DataEvictionPolicy(long maximumSize, boolean weighValueCount, long idleDuration) {
+        this.maximumSize = maximumSize;
+        this.protectedMaximumSize = maximumSize > 0 ? (long)(maximumSize * PROTECTED_RATIO) : Long.MAX_VALUE;
+        this.weighValueCount = weighValueCount;
+        this.idleDuration = idleDuration;
+        this.readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        this.probation = new LinkedHashMap<>();
+        this.protect = new LinkedHashMap<>();
+    }
+
+    /**
+     * 新建的数据进入probation段
+     * @param container
+     */
+    synchronized void onCreate(IPrimaryDataContainer<K, V> container){
+        Node<K, V> node = new Node<>(container, weigh(container));
+        probation.put(container.primaryKey(), node);
+        probationSize += node.weight;
+    }
+
+    /**
+     * 记录访问，缓冲区满或者冲突时丢弃也没关系
+     * @param container
+     */
+    void onAccess(IPrimaryDataContainer<K, V> container){
+        int index = ThreadLocalRandom.current().nextInt() & READ_BUFFER_MASK;
+        readBuffer.lazySet(index, container);
+    }
+
+    /**
+     * 回放访问记录并返回需要淘汰的数据（已经从策略中移除）
+     * @param currentTime
+     * @return
+     */
+    synchronized List<IPrimaryDataContainer<K, V>> drainAndEvict(long currentTime){
+        drainReadBuffer();
+        List<IPrimaryDataContainer<K, V>> victims = new ArrayList<>();
+        if (idleDuration > 0){
+            long idleTime = currentTime - idleDuration;
+            expireIdle(probation, idleTime, victims);
+            expireIdle(protect, idleTime, victims);
+        }
+        while (maximumSize > 0 && probationSize + protectSize > maximumSize){
+            LinkedHashMap<Long, Node<K, V>> segment = probation.isEmpty() ? protect : probation;
+            Iterator<Node<K, V>> iterator = segment.values().iterator();
+            if (!iterator.hasNext()){
+                break;
+            }
+            Node<K, V> node = iterator.next();
+            iterator.remove();
+            if (segment == probation){
+                probationSize -= node.weight;
+            }
+            else {
+                protectSize -= node.weight;
+            }
+            victims.add(node.container);
+        }
+        return victims;
+    }
+
+    /**
+     * 淘汰失败（回写失败）的数据重新放回probation段
+     * @param container
+     */
+    synchronized void reinstate(IPrimaryDataContainer<K, V> container){
+        if (probation.containsKey(container.primaryKey()) || protect.containsKey(container.primaryKey())){
+            return;
+        }
+        onCreate(container);
+    }
+
+    synchronized long size(){
+        return probationSize + protectSize;
+    }
+
+    /**
+     * 只检查队列头部，不需要遍历所有数据
+     * @param segment
+     * @param idleTime
+     * @param victims
+     */
+    private void expireIdle(LinkedHashMap<Long, Node<K, V>> segment, long idleTime, List<IPrimaryDataContainer<K, V>> victims){
+        int skipCount = 0;
+        Iterator<Node<K, V>> iterator = segment.values().iterator();
+        List<Node<K, V>> skipNodes = null;
+        while (iterator.hasNext() && skipCount < IDLE_SKIP_COUNT){
+            Node<K, V> node = iterator.next();
+            if (node.container.lastAccessTime() > idleTime){
+                //访问记录丢失导致的乱序，放到队尾
+                if (skipNodes == null){
+                    skipNodes = new ArrayList<>();
+                }
+                skipNodes.add(node);
+                skipCount++;
+                continue;
+            }
+            iterator.remove();
+            if (segment == probation){
+                probationSize -= node.weight;
+            }
+            else {
+                protectSize -= node.weight;
+            }
+            victims.add(node.container);
+        }
+        if (skipNodes != null){
+            for (Node<K, V> node : skipNodes) {
+                long primaryKey = node.container.primaryKey();
+                segment.remove(primaryKey);
+                segment.put(primaryKey, node);
+            }
+        }
+    }
+
+    private void drainReadBuffer(){
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            IPrimaryDataContainer<K, V> container = readBuffer.getAndSet(i, null);
+            if (container != null){
+                onAccessInternal(container);
+            }
+        }
+    }
+
+    private void onAccessInternal(IPrimaryDataContainer<K, V> container){
+        long primaryKey = container.primaryKey();
+        Node<K, V> node = probation.get(primaryKey);
+        boolean inProbation = node != null;
+        if (!inProbation){
+            node = protect.get(primaryKey);
+        }
+        if (node == null || node.container != container){
+            //正在淘汰中，或者已经是新的容器了，旧的访问记录无效
+            return;
+        }
+        if (inProbation){
+            probation.remove(primaryKey);
+            probationSize -= node.weight;
+        }
+        else {
+            protect.remove(primaryKey);
+            protectSize -= node.weight;
+        }
+        node.weight = weigh(container);
+        if (node.fresh){
+            //创建之后的第一次访问（加载）只更新权重，不晋升
+            node.fresh = false;
+            probation.put(primaryKey, node);
+            probationSize += node.weight;
+            return;
+        }
+        protect.put(primaryKey, node);
+        protectSize += node.weight;
+        //protected段超出之后，最久没有访问的降级到probation段
+        while (protectSize > protectedMaximumSize && protect.size() > 1){
+            Iterator<Node<K, V>> iterator = protect.values().iterator();
+            Node<K, V> demote = iterator.next();
+            iterator.remove();
+            protectSize -= demote.weight;
+            probation.put(demote.container.primaryKey(), demote);
+            probationSize += demote.weight;
+        }
+    }
+
+    private long weigh(IPrimaryDataContainer<K, V> container){
+        return weighValueCount ? Math.max(1, container.weight()) : 1;
+    }
+
+    private static final class Node<K, V extends IData<K>> {
+        private final IPrimaryDataContainer<K, V> container;
+        private long weight;
+        private boolean fresh;
+
+        private Node(IPrimaryDataContainer<K, V> container, long weight) {
+            this.container = container;
+            this.weight = weight;
+            this.fresh = true;
+        }
+    }
+}
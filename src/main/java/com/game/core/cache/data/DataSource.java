@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 class DataSource<K, V extends IData<K>> implements IDataSource<K, V>{
@@ -27,6 +28,11 @@ class DataSource<K, V extends IData<K>> implements IDataSource<K, V>{
         return cacheSource.getCacheUniqueId();
     }
 
+    @Override
+    public LockKey getLockKey() {
+        return cacheSource.getLockKey();
+    }
+
     @Override
     public LockKey getLockKey(long primaryKey) {
         return cacheSource.getLockKey(primaryKey);
@@ -77,6 +83,11 @@ class DataSource<K, V extends IData<K>> implements IDataSource<K, V>{
         return collection;
     }
 
+    @Override
+    public Map<Long, DataCollection<K, V>> getCollections(Collection<Long> primaryKeys) {
+        return cacheSource.getCollections(primaryKeys);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public V cloneValue(V value) {
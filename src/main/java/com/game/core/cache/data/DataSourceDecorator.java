@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 abstract class DataSourceDecorator<K, V extends IData<K>> implements IDataSource<K, V>{
@@ -26,6 +27,11 @@ abstract class DataSourceDecorator<K, V extends IData<K>> implements IDataSource
         return dataSource.getCacheUniqueId();
     }
 
+    @Override
+    public LockKey getLockKey() {
+        return dataSource.getLockKey();
+    }
+
     @Override
     public LockKey getLockKey(long primaryKey) {
         return dataSource.getLockKey(primaryKey);
@@ -108,6 +114,15 @@ abstract class DataSourceDecorator<K, V extends IData<K>> implements IDataSource
 
     protected abstract void onGetCollection(long primaryKey, DataCollection<K, V> collection);
 
+    @Override
+    public Map<Long, DataCollection<K, V>> getCollections(Collection<Long> primaryKeys) {
+        Map<Long, DataCollection<K, V>> collectionMap = dataSource.getCollections(primaryKeys);
+        if (decoratorEnable()){
+            collectionMap.forEach(this::onGetCollection);
+        }
+        return collectionMap;
+    }
+
 
     @Override
     @SuppressWarnings("unchecked")
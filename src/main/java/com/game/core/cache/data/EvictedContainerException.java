@@ -0,0 +1,13 @@
+package com.game.core.cache.data;
+
+import com.game.core.cache.exception.CacheException;
+
+/**
+ * 持有的主键容器已经被淘汰，调用方需要重新获取容器再执行
+ */
+class EvictedContainerException extends CacheException {
+
+    EvictedContainerException(long primaryKey) {
+        super("primaryKey:%s container evicted.", primaryKey);
+    }
+}
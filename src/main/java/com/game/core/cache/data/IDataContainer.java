@@ -3,6 +3,8 @@ package com.game.core.cache.data;
 import com.game.common.util.Holder;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface IDataContainer<K, V extends IData<K>> {
@@ -17,12 +19,34 @@ public interface IDataContainer<K, V extends IData<K>> {
 
     Collection<V> getAll(long primaryKey);
 
+    /**
+     * 批量获取多个主键的数据，没有加载的主键一次批量查询
+     * @param primaryKeys
+     * @return
+     */
+    Map<Long, Collection<V>> getAll(Collection<Long> primaryKeys);
+
+    /**
+     * 没有加载的主键交给缓存线程合并成批量查询，不堵塞调用的线程
+     * @param primaryKey
+     * @return
+     */
+    CompletableFuture<Collection<V>> getAllAsync(long primaryKey);
+
     Collection<V> getAllNoCache(long primaryKey);
 
     V replaceOne(long primaryKey, V value);
 
     void replaceBatch(long primaryKey, Collection<V> values);
 
+    /**
+     * 在缓存线程中替换，完成之后回调
+     * @param primaryKey
+     * @param values
+     * @return
+     */
+    CompletableFuture<Void> replaceBatchAsync(long primaryKey, Collection<V> values);
+
     V removeOne(long primaryKey, K secondaryKeys);
 
     void removeBatch(long primaryKey, Collection<K> secondaryKeys);
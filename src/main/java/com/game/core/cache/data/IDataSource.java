@@ -7,12 +7,19 @@ import com.game.common.lock.LockKey;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 public interface IDataSource<K, V extends IData<K>> {
 
     ICacheUniqueId getCacheUniqueId();
 
+    /**
+     * 数据类型的锁，主键的锁是 getLockKey().createLockKey(primaryKey)
+     * @return
+     */
+    LockKey getLockKey();
+
     LockKey getLockKey(long primaryKey);
 
     V get(long primaryKey, K secondaryKey);
@@ -21,6 +28,13 @@ public interface IDataSource<K, V extends IData<K>> {
 
     DataCollection<K, V> getCollection(long primaryKey);
 
+    /**
+     * 批量加载多个主键的数据（一次查询），没有数据的主键也会返回空集合
+     * @param primaryKeys
+     * @return
+     */
+    Map<Long, DataCollection<K, V>> getCollections(Collection<Long> primaryKeys);
+
     boolean replaceOne(long primaryKey, V value);
 
     boolean replaceBatch(long primaryKey, Collection<V> values);
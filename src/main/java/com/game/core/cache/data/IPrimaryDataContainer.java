@@ -21,4 +21,42 @@ public interface IPrimaryDataContainer<K, V extends IData<K>> {
     void removeBatch(Collection<K> secondaryKeys);
 
     void onSchedule(long currentTime);
+
+    /**
+     * 已经加载并且不需要重新加载（不加锁）
+     * @param currentTime
+     * @return
+     */
+    boolean isLoaded(long currentTime);
+
+    /**
+     * 使用批量查询的数据加载，调用方持有主键的锁
+     * @param collection
+     * @return 已经加载过的时候返回false，数据丢弃
+     */
+    boolean loadCollection(DataCollection<K, V> collection);
+
+    /**
+     * 已经从DataContainer中移除，调用方持有主键的锁
+     * 之后锁内的读写都会失败，由DataContainer重新获取容器
+     */
+    void markEvicted();
+
+    /**
+     * 已经被淘汰（不加锁）
+     * @return
+     */
+    boolean isEvicted();
+
+    /**
+     * 当前内存中的数据数量（不会触发加载）
+     * @return
+     */
+    int weight();
+
+    /**
+     * 最后一次访问的时间（精确到秒级即可）
+     * @return
+     */
+    long lastAccessTime();
 }
@@ -0,0 +1,82 @@
+package com.game.core.cache.data;
+
+import com.game.core.cache.mapper.ValueConverter;
+
+/**
+ * 延迟解码的字段：加载的时候只保存数据源中的原始数据，第一次访问的时候才解码
+ * 没有访问过的字段回写时直接使用原始数据
+ * 加载之后的数据会被多个线程无锁读取，解码使用双重检查，只解码一次
+ * 例：@CacheFiled(index = 6) private LazyValue<List<QuestProgress>> questList = new LazyValue<>();
+ * @param <T>
+ */
+public final class LazyValue<T> {
+
+    private T value;
+    /**
+     * 原始数据和对应的转换器，解码之后清空
+     * 先写value再清空converter，看到converter为null的线程一定能看到value
+     */
+    private Object cacheValue;
+    private volatile ValueConverter<T> converter;
+
+    public LazyValue() {
+    }
+
+    public LazyValue(T value) {
+        this.value = value;
+    }
+
+    /**
+     * @param cacheValue 数据源中的原始数据
+     * @param converter 解码使用的转换器
+     * @param <T>
+     * @return
+     */
+    public static <T> LazyValue<T> ofCacheValue(Object cacheValue, ValueConverter<T> converter){
+        LazyValue<T> lazyValue = new LazyValue<>();
+        lazyValue.cacheValue = cacheValue;
+        lazyValue.converter = converter;
+        return lazyValue;
+    }
+
+    /**
+     * 访问之后回写的时候重新编码（返回的对象可能被修改）
+     * @return
+     */
+    public T get() {
+        if (converter != null){
+            synchronized (this){
+                ValueConverter<T> converter = this.converter;
+                if (converter != null){
+                    value = converter.decode(cacheValue);
+                    cacheValue = null;
+                    this.converter = null;
+                }
+            }
+        }
+        return value;
+    }
+
+    public synchronized void set(T value) {
+        this.value = value;
+        this.cacheValue = null;
+        this.converter = null;
+    }
+
+    public boolean isDecoded() {
+        return converter == null;
+    }
+
+    /**
+     * @param converter
+     * @return 没有解码并且是同一个转换器产生的原始数据，否则返回null
+     */
+    public synchronized Object getCacheValue(ValueConverter<?> converter) {
+        return this.converter == converter ? cacheValue : null;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return isDecoded() ? String.valueOf(value) : String.valueOf(cacheValue);
+    }
+}
@@ -2,6 +2,7 @@ package com.game.core.cache.data;
 
 import com.game.core.cache.CacheInformation;
 import com.game.core.cache.exception.CacheException;
+import com.game.core.cache.source.executor.CacheTimingWheel;
 import com.game.common.arg.Args;
 import com.game.common.lock.LockUtil;
 import com.game.common.log.LogUtil;
@@ -16,19 +17,41 @@ import java.util.concurrent.ConcurrentHashMap;
 public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryDataContainer<K, V>{
 
     private static final Logger logger = LoggerFactory.getLogger(PrimaryDataContainer.class);
+    /**
+     * 访问时间的精度，避免热点数据每次读都写volatile
+     */
+    private static final long ACCESS_TIME_PRECISION = 1000L;
+    /**
+     * 延长过期时间失败之后的重试间隔
+     */
+    private static final long RETRY_DURATION = 1000L;
 
     private final long primaryKey;
-    private ConcurrentHashMap<K, V> secondary2Values;
-    private CacheInformation cacheInformation;
+    private final ConcurrentHashMap<K, V> secondary2Values;
+    private volatile CacheInformation cacheInformation;
+    /**
+     * 已加载状态的快速判断：当前时间小于该值时，读操作直接访问secondary2Values，不需要加锁
+     * 只有在加载/过期/更新过期时间的时候（锁内）修改
+     */
+    private volatile long reloadTime;
+    private volatile long lastAccessTime;
+    /**
+     * 已经从DataContainer中淘汰，只在主键的锁内设置，锁内的操作看到之后放弃执行
+     */
+    private volatile boolean evicted;
     private final IDataSource<K, V> dataSource;
     private final IDataLifePredicate loadPredicate;
+    private final CacheTimingWheel<IPrimaryDataContainer<K, V>> timingWheel;
 
-    public PrimaryDataContainer(long primaryKey, IDataSource<K, V> dataSource, IDataLifePredicate loadPredicate) {
+    public PrimaryDataContainer(long primaryKey, IDataSource<K, V> dataSource, IDataLifePredicate loadPredicate, CacheTimingWheel<IPrimaryDataContainer<K, V>> timingWheel) {
         this.primaryKey = primaryKey;
         this.secondary2Values = new ConcurrentHashMap<>();
         this.cacheInformation = null;
+        this.reloadTime = Long.MIN_VALUE;
+        this.lastAccessTime = System.currentTimeMillis();
         this.dataSource = dataSource;
         this.loadPredicate = loadPredicate;
+        this.timingWheel = timingWheel;
     }
 
     @Override
@@ -38,32 +61,40 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
 
     @Override
     public int count() {
-        return lockCurrentMap().size();
+        return readCurrentMap().size();
     }
 
     @Override
     public V get(K secondaryKey) {
-        return lockCurrentMap().get(secondaryKey);
+        return readCurrentMap().get(secondaryKey);
     }
 
     @Override
     public Collection<V> getAll() {
-        return lockCurrentMap().values();
+        return readCurrentMap().values();
     }
 
     @Override
     public V replaceOne(V value) {
-        Args.Two<Boolean, V> resultValue = LockUtil.syncLock(dataSource.getLockKey(primaryKey), "deleteOne", () -> {
+        Args.Two<Boolean, V> resultValue = LockUtil.syncLock(dataSource.getLockKey(), primaryKey, "deleteOne", () -> {
+            if (evicted){
+                return null;
+            }
+            ConcurrentHashMap<K, V> currentMap = currentMap();
+            markNewValue(currentMap, value);
             boolean success = dataSource.replaceOne(primaryKey, value);
             V oldValue = null;
             if (success){
-                oldValue = currentMap().put(value.secondaryKey(), value);
+                oldValue = currentMap.put(value.secondaryKey(), value);
             }
             return Args.create(success, oldValue);
         });
         if (resultValue != null && resultValue.arg0){
             return resultValue.arg1;
         }
+        else if (evicted){
+            throw new EvictedContainerException(primaryKey);
+        }
         else {
             throw new CacheException("primaryKey:%s replaceOne error, %s", LogUtil.toJSONString(primaryKey), LogUtil.toJSONString(value));
         }
@@ -71,10 +102,16 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
 
     @Override
     public void replaceBatch(Collection<V> values) {
-        Boolean isSuccess = LockUtil.syncLock(dataSource.getLockKey(primaryKey), "deleteBatch", () -> {
+        Boolean isSuccess = LockUtil.syncLock(dataSource.getLockKey(), primaryKey, "deleteBatch", () -> {
+            if (evicted){
+                return null;
+            }
+            ConcurrentHashMap<K, V> currentMap = currentMap();
+            for (V value : values) {
+                markNewValue(currentMap, value);
+            }
             boolean success = dataSource.replaceBatch(primaryKey, values);
             if (success){
-                ConcurrentHashMap<K, V> currentMap = currentMap();
                 for (V value : values) {
                     currentMap.put(value.secondaryKey(), value);
                 }
@@ -83,6 +120,9 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
         });
         if (isSuccess != null && isSuccess){
 
+        }
+        else if (evicted){
+            throw new EvictedContainerException(primaryKey);
         }
         else {
             throw new CacheException("primaryKey:%s replaceBatch error, %s", LogUtil.toJSONString(primaryKey), LogUtil.toJSONString(values));
@@ -91,7 +131,10 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
 
     @Override
     public V removeOne(K secondaryKey) {
-        Args.Two<Boolean, V> resultValue = LockUtil.syncLock(dataSource.getLockKey(primaryKey), "deleteOne", () -> {
+        Args.Two<Boolean, V> resultValue = LockUtil.syncLock(dataSource.getLockKey(), primaryKey, "deleteOne", () -> {
+            if (evicted){
+                return null;
+            }
             boolean success = true;
             ConcurrentHashMap<K, V> currentMap = currentMap();
             V data = currentMap.get(secondaryKey);
@@ -107,6 +150,9 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
         if (resultValue != null && resultValue.arg0){
             return resultValue.arg1;
         }
+        else if (evicted){
+            throw new EvictedContainerException(primaryKey);
+        }
         else {
             throw new CacheException("primaryKey:%s deleteOne error, %s", LogUtil.toJSONString(primaryKey), LogUtil.toJSONString(secondaryKey));
         }
@@ -114,7 +160,10 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
 
     @Override
     public void removeBatch(Collection<K> secondaryKeys) {
-        Boolean isSuccess = LockUtil.syncLock(dataSource.getLockKey(primaryKey), "deleteBatch", () -> {
+        Boolean isSuccess = LockUtil.syncLock(dataSource.getLockKey(), primaryKey, "deleteBatch", () -> {
+            if (evicted){
+                return null;
+            }
             boolean success = true;
             long currentTime = System.currentTimeMillis();
             ConcurrentHashMap<K, V> currentMap = currentMap();
@@ -139,6 +188,9 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
         });
         if (isSuccess != null && isSuccess){
         }
+        else if (evicted){
+            throw new EvictedContainerException(primaryKey);
+        }
         else {
             throw new CacheException("primaryKey:%s deleteBatch error, %s", LogUtil.toJSONString(primaryKey), LogUtil.toJSONString(secondaryKeys));
         }
@@ -146,28 +198,114 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
 
     @Override
     public void onSchedule(long currentTime) {
-        if (cacheInformation == null){
+        if (evicted || cacheInformation == null){
             return;
         }
         if (!cacheInformation.needUpdateExpired(currentTime)){
             return;
         }
-        LockUtil.syncLock(dataSource.getLockKey(primaryKey), "onSchedule", () -> {
+        boolean isSuccess = LockUtil.syncLock(dataSource.getLockKey(), primaryKey, "onSchedule", () -> {
+            if (evicted){
+                return;
+            }
             CacheInformation cacheInformation = PrimaryDataContainer.this.cacheInformation.cloneInformation();
             cacheInformation.updateCurrentTime(currentTime);
             boolean updateSuccess = dataSource.updateCacheInformation(primaryKey, cacheInformation);
             if (updateSuccess){
-                PrimaryDataContainer.this.cacheInformation = cacheInformation;
+                updateCacheInformation(cacheInformation);
             }
             else {
                 logger.error("primaryKey:{} updateCacheInformation error.", primaryKey);
+                timingWheel.schedule(this, currentTime + RETRY_DURATION);
             }
         });
+        if (!isSuccess && !evicted){
+            timingWheel.schedule(this, currentTime + RETRY_DURATION);
+        }
+    }
+
+    /**
+     * 新增的数据需要完整写入，清掉字段变化的标记
+     * @param currentMap
+     * @param value
+     */
+    private void markNewValue(ConcurrentHashMap<K, V> currentMap, V value){
+        if (!currentMap.containsKey(value.secondaryKey())){
+            value.clearCacheBitIndex();
+        }
+    }
+
+    @Override
+    public boolean isLoaded(long currentTime) {
+        return currentTime < reloadTime;
+    }
+
+    @Override
+    public boolean loadCollection(DataCollection<K, V> collection) {
+        long currentTime = System.currentTimeMillis();
+        if (evicted || (cacheInformation != null && !cacheInformation.isExpired(currentTime))){
+            return false;
+        }
+        fillCollection(collection);
+        return true;
+    }
+
+    @Override
+    public void markEvicted() {
+        evicted = true;
+        //读的快速路径走到锁内，看到淘汰标记
+        reloadTime = Long.MIN_VALUE;
+    }
+
+    @Override
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    @Override
+    public int weight() {
+        return secondary2Values.size();
+    }
+
+    @Override
+    public long lastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * 读操作：已经加载并且没有过期的情况下只有一次volatile读，否则走加锁加载
+     * @return
+     */
+    private ConcurrentHashMap<K, V> readCurrentMap(){
+        long currentTime = System.currentTimeMillis();
+        if (currentTime < reloadTime){
+            updateAccessTime(currentTime);
+            return secondary2Values;
+        }
+        return lockCurrentMap();
+    }
+
+    private void updateAccessTime(long currentTime){
+        if (currentTime - lastAccessTime >= ACCESS_TIME_PRECISION){
+            lastAccessTime = currentTime;
+        }
+    }
+
+    private void updateCacheInformation(CacheInformation cacheInformation){
+        this.cacheInformation = cacheInformation;
+        this.reloadTime = cacheInformation.getReloadTime();
+        long updateExpiredTime = cacheInformation.getUpdateExpiredTime();
+        if (updateExpiredTime != Long.MAX_VALUE){
+            timingWheel.schedule(this, updateExpiredTime);
+        }
     }
 
     private ConcurrentHashMap<K, V> lockCurrentMap(){
-        ConcurrentHashMap<K, V> currentMap = LockUtil.syncLock(dataSource.getLockKey(primaryKey), "currentMap", this::currentMap);
+        ConcurrentHashMap<K, V> currentMap = LockUtil.syncLock(dataSource.getLockKey(), primaryKey, "currentMap", () -> evicted ? null : currentMap());
         if (currentMap == null){
+            if (evicted){
+                throw new EvictedContainerException(primaryKey);
+            }
             throw new CacheException("primaryKey:%s load cache exception.", LogUtil.toJSONString(primaryKey));
         }
         return currentMap;
@@ -175,24 +313,30 @@ public class PrimaryDataContainer<K, V extends IData<K>> implements IPrimaryData
 
     private ConcurrentHashMap<K, V> currentMap(){
         long currentTime = System.currentTimeMillis();
+        updateAccessTime(currentTime);
         if (cacheInformation == null || cacheInformation.isExpired(currentTime)){
             if (loadPredicate.isNewLife(primaryKey)){
-                cacheInformation = new CacheInformation();
+                CacheInformation cacheInformation = new CacheInformation();
                 loadPredicate.setOldLife(primaryKey);
                 cacheInformation.updateCurrentTime(currentTime);
+                updateCacheInformation(cacheInformation);
             }
             else {
-                DataCollection<K, V> collection = dataSource.getCollection(primaryKey);
-                List<V> valueList = collection.getDataList();
-                for (V value : valueList) {
-                    if (value.isDeleted()){
-                        continue;
-                    }
-                    secondary2Values.put(value.secondaryKey(), value);
-                }
-                cacheInformation = collection.getCacheInformation();
+                fillCollection(dataSource.getCollection(primaryKey));
             }
         }
         return secondary2Values;
     }
+
+    private void fillCollection(DataCollection<K, V> collection){
+        List<V> valueList = collection.getDataList();
+        for (V value : valueList) {
+            if (value.isDeleted()){
+                continue;
+            }
+            secondary2Values.put(value.secondaryKey(), value);
+        }
+        //先填充数据再发布加载状态，读线程看到reloadTime时数据已经可见
+        updateCacheInformation(collection.getCacheInformation());
+    }
 }
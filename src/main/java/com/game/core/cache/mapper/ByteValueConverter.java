@@ -1,6 +1,6 @@
 package com.game.core.cache.mapper;
 
-public class ByteValueConverter extends ValueConverter<Byte> {
+public class ByteValueConverter extends ValueConverter<Byte> implements IIntValueConverter {
 
     public ByteValueConverter() {
         super((byte)0, (byte)0);
@@ -15,4 +15,14 @@ public class ByteValueConverter extends ValueConverter<Byte> {
     protected Object encode0(Object dataValue) {
         return dataValue;
     }
+
+    @Override
+    public int decodeInt(Object cacheValue) {
+        return cacheValue == null ? 0 : (byte)cacheValue;
+    }
+
+    @Override
+    public Object encodeInt(int dataValue) {
+        return (byte)dataValue;
+    }
 }
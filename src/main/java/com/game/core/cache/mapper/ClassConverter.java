@@ -5,6 +5,10 @@ import com.game.core.cache.data.IData;
 import com.game.core.cache.exception.CacheException;
 import com.game.common.log.LogUtil;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.HashMap;
@@ -17,11 +21,32 @@ public class ClassConverter<K,V extends IData<K>> implements IClassConverter<K,
     private final Class<V> aClass;
     private final IClassAnnotation classAnnotation;
     private final CacheType cacheType;
+    /**
+     * 构造函数和字段的访问句柄、字段的转换器在创建的时候解析一次，转换的时候不再反射和查表
+     */
+    private final MethodHandle constructor;
+    private final FieldConverter[] fieldConverters;
 
     public ClassConverter(Class<V> aClass, IClassAnnotation classAnnotation, CacheType cacheType) {
         this.aClass = aClass;
         this.classAnnotation = classAnnotation;
         this.cacheType = cacheType;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<V> declaredConstructor = aClass.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(declaredConstructor).asType(MethodType.methodType(Object.class));
+            List<FieldAnnotation> fieldAnnotationList = classAnnotation.getFiledAnnotationList();
+            this.fieldConverters = new FieldConverter[fieldAnnotationList.size()];
+            for (int i = 0; i < fieldConverters.length; i++) {
+                FieldAnnotation description = fieldAnnotationList.get(i);
+                ValueConverter<?> converter = cacheType.getConvertMapper().getOrDefault(description);
+                fieldConverters[i] = createFieldConverter(lookup, description, converter);
+            }
+        }
+        catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new CacheException("cls:%s create converter error", e, aClass.getName());
+        }
     }
 
     @Override
@@ -39,14 +64,11 @@ public class ClassConverter<K,V extends IData<K>> implements IClassConverter<K,
     public V convert2Value(Map<String, Object> cacheValue){
         Class<V> convertedClass = getConvertedClass();
         try {
-            V newInstance = convertedClass.newInstance();
-            for (FieldAnnotation description : classAnnotation.getFiledAnnotationList()) {
-                Field field = description.getField();
-                ValueConverter<?> converter = cacheType.getConvertMapper().getOrDefault(description.getType());
-                Object object = converter.decode(cacheValue.get(description.getAnnotationName()));
-                field.set(newInstance, object);
+            Object newInstance = (Object) constructor.invokeExact();
+            for (FieldConverter fieldConverter : fieldConverters) {
+                fieldConverter.decodeValue(newInstance, cacheValue);
             }
-            return newInstance;
+            return convertedClass.cast(newInstance);
         }
         catch (Throwable e) {
             throw new CacheException("cls:%s cacheValue:%s", e, convertedClass.getName(), LogUtil.toJSONString(cacheValue));
@@ -61,9 +83,9 @@ public class ClassConverter<K,V extends IData<K>> implements IClassConverter<K,
     @Override
     public Map<String, Object> convert2Cache(V dataValue){
         try {
-            Map<String, Object> cacheValue = new HashMap<>();
-            for (FieldAnnotation description : classAnnotation.getFiledAnnotationList()) {
-                encodeValue(dataValue, cacheValue, description, true);
+            Map<String, Object> cacheValue = new HashMap<>(fieldConverters.length * 4 / 3 + 1);
+            for (FieldConverter fieldConverter : fieldConverters) {
+                fieldConverter.encodeValue(dataValue, cacheValue, true);
             }
             return cacheValue;
         }
@@ -72,21 +94,155 @@ public class ClassConverter<K,V extends IData<K>> implements IClassConverter<K,
         }
     }
 
+    @Override
+    public Map<String, Object> convert2Cache(V dataValue, long dirtyBits){
+        if (dirtyBits == 0){
+            return convert2Cache(dataValue);
+        }
+        try {
+            Map<String, Object> cacheValue = new HashMap<>();
+            for (FieldConverter fieldConverter : fieldConverters) {
+                if ((dirtyBits & fieldConverter.bitMask) == 0){
+                    continue;
+                }
+                fieldConverter.encodeValue(dataValue, cacheValue, true);
+            }
+            //标记的字段都不存在的时候全量转换
+            return cacheValue.isEmpty() ? convert2Cache(dataValue) : cacheValue;
+        }
+        catch (Throwable e) {
+            throw new CacheException("cls:%s dataValue:%s", e, getConvertedClass().getName(), LogUtil.toJSONString(dataValue));
+        }
+    }
+
     @Override
     public List<Map<String, Object>> convert2CacheList(Collection<V> dataValues) {
         return dataValues.stream().map(this::convert2Cache).collect(Collectors.toList());
     }
 
-    private void encodeValue(V dataValue, Map<String, Object> cacheValue, FieldAnnotation description, boolean checkNullObject) throws IllegalAccessException {
-        Field field = description.getField();
-        ValueConverter<?> converter = cacheType.getConvertMapper().getOrDefault(description.getType());
-        Object encode = converter.encode(field.get(dataValue));
-        if (encode != null){
-            cacheValue.put(description.getAnnotationName(), encode);
+    /**
+     * 基础类型的字段使用对应的转换接口，不需要装箱
+     * @param lookup
+     * @param description
+     * @param converter
+     * @return
+     * @throws IllegalAccessException
+     */
+    private static FieldConverter createFieldConverter(MethodHandles.Lookup lookup, FieldAnnotation description, ValueConverter<?> converter) throws IllegalAccessException {
+        Class<?> type = description.getType();
+        if (isLongField(type, converter)){
+            return new LongFieldConverter(lookup, description, converter);
         }
-        else if (checkNullObject){
-            throw new CacheException("name:%s can't be null", description.getAnnotationName());
+        if (isIntField(type, converter)){
+            return new IntFieldConverter(lookup, description, converter);
         }
+        return new FieldConverter(lookup, description, converter);
     }
-}
 
+    /**
+     * long字段，转换器支持不装箱的读写
+     * @param type 字段类型
+     * @param converter
+     * @return
+     */
+    public static boolean isLongField(Class<?> type, ValueConverter<?> converter){
+        return type == long.class && converter instanceof ILongValueConverter;
+    }
+
+    /**
+     * int/short/byte字段，转换器支持不装箱的读写（short/byte按照int读写）
+     * @param type 字段类型
+     * @param converter
+     * @return
+     */
+    public static boolean isIntField(Class<?> type, ValueConverter<?> converter){
+        return (type == int.class || type == short.class || type == byte.class) && converter instanceof IIntValueConverter;
+    }
+
+    /**
+     * 单个字段的访问句柄和转换器
+     */
+    private static class FieldConverter {
+
+        protected final String annotationName;
+        private final long bitMask;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final ValueConverter<?> converter;
+
+        private FieldConverter(MethodHandles.Lookup lookup, FieldAnnotation description, ValueConverter<?> converter) throws IllegalAccessException {
+            Field field = description.getField();
+            this.annotationName = description.getAnnotationName();
+            this.bitMask = 1L << description.getUniqueId();
+            this.getter = lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.converter = converter;
+        }
+
+        protected void decodeValue(Object dataValue, Map<String, Object> cacheValue) throws Throwable {
+            Object object = converter.decode(cacheValue.get(annotationName));
+            setter.invokeExact(dataValue, object);
+        }
+
+        protected void encodeValue(Object dataValue, Map<String, Object> cacheValue, boolean checkNullObject) throws Throwable {
+            Object encode = converter.encode((Object) getter.invokeExact(dataValue));
+            if (encode != null){
+                cacheValue.put(annotationName, encode);
+            }
+            else if (checkNullObject){
+                throw new CacheException("name:%s can't be null", annotationName);
+            }
+        }
+    }
+
+    private static final class LongFieldConverter extends FieldConverter {
+
+        private final MethodHandle longGetter;
+        private final MethodHandle longSetter;
+        private final ILongValueConverter longConverter;
+
+        private LongFieldConverter(MethodHandles.Lookup lookup, FieldAnnotation description, ValueConverter<?> converter) throws IllegalAccessException {
+            super(lookup, description, converter);
+            Field field = description.getField();
+            this.longGetter = lookup.unreflectGetter(field).asType(MethodType.methodType(long.class, Object.class));
+            this.longSetter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, long.class));
+            this.longConverter = (ILongValueConverter) converter;
+        }
+
+        @Override
+        protected void decodeValue(Object dataValue, Map<String, Object> cacheValue) throws Throwable {
+            longSetter.invokeExact(dataValue, longConverter.decodeLong(cacheValue.get(annotationName)));
+        }
+
+        @Override
+        protected void encodeValue(Object dataValue, Map<String, Object> cacheValue, boolean checkNullObject) throws Throwable {
+            cacheValue.put(annotationName, longConverter.encodeLong((long) longGetter.invokeExact(dataValue)));
+        }
+    }
+
+    private static final class IntFieldConverter extends FieldConverter {
+
+        private final MethodHandle intGetter;
+        private final MethodHandle intSetter;
+        private final IIntValueConverter intConverter;
+
+        private IntFieldConverter(MethodHandles.Lookup lookup, FieldAnnotation description, ValueConverter<?> converter) throws IllegalAccessException {
+            super(lookup, description, converter);
+            Field field = description.getField();
+            //short/byte 按照int读写
+            this.intGetter = lookup.unreflectGetter(field).asType(MethodType.methodType(int.class, Object.class));
+            this.intSetter = MethodHandles.explicitCastArguments(lookup.unreflectSetter(field), MethodType.methodType(void.class, Object.class, int.class));
+            this.intConverter = (IIntValueConverter) converter;
+        }
+
+        @Override
+        protected void decodeValue(Object dataValue, Map<String, Object> cacheValue) throws Throwable {
+            intSetter.invokeExact(dataValue, intConverter.decodeInt(cacheValue.get(annotationName)));
+        }
+
+        @Override
+        protected void encodeValue(Object dataValue, Map<String, Object> cacheValue, boolean checkNullObject) throws Throwable {
+            cacheValue.put(annotationName, intConverter.encodeInt((int) intGetter.invokeExact(dataValue)));
+        }
+    }
+}
@@ -18,5 +18,13 @@ public interface IClassConverter<K, V extends IData<K>> {
 
     Map<String, Object> convert2Cache(V dataValue);
 
+    /**
+     * 只转换变化的字段
+     * @param dataValue
+     * @param dirtyBits 对应字段的index，0表示全部字段
+     * @return
+     */
+    Map<String, Object> convert2Cache(V dataValue, long dirtyBits);
+
     List<Map<String, Object>> convert2CacheList(Collection<V> dataValues);
 }
@@ -0,0 +1,15 @@
+package com.game.core.cache.mapper;
+
+/**
+ * int/short/byte字段的转换，不需要装箱和比较默认值
+ */
+public interface IIntValueConverter {
+
+    /**
+     * @param cacheValue null的时候返回默认值
+     * @return
+     */
+    int decodeInt(Object cacheValue);
+
+    Object encodeInt(int dataValue);
+}
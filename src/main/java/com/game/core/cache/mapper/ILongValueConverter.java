@@ -0,0 +1,15 @@
+package com.game.core.cache.mapper;
+
+/**
+ * long字段的转换，不需要装箱和比较默认值
+ */
+public interface ILongValueConverter {
+
+    /**
+     * @param cacheValue null的时候返回默认值
+     * @return
+     */
+    long decodeLong(Object cacheValue);
+
+    Object encodeLong(long dataValue);
+}
@@ -1,6 +1,6 @@
 package com.game.core.cache.mapper;
 
-public class IntegerValueConverter extends ValueConverter<Integer> {
+public class IntegerValueConverter extends ValueConverter<Integer> implements IIntValueConverter {
 
     public IntegerValueConverter() {
         super(0, 0);
@@ -15,4 +15,14 @@ public class IntegerValueConverter extends ValueConverter<Integer> {
     protected Object encode0(Object dataValue) {
         return dataValue;
     }
+
+    @Override
+    public int decodeInt(Object cacheValue) {
+        return cacheValue == null ? 0 : (int)cacheValue;
+    }
+
+    @Override
+    public Object encodeInt(int dataValue) {
+        return dataValue;
+    }
 }
@@ -0,0 +1,45 @@
+package com.game.core.cache.mapper;
+
+import com.game.core.cache.data.LazyValue;
+
+/**
+ * LazyValue 字段：解码的时候只保存原始数据，真正的转换交给泛型参数对应的转换器
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class LazyValueConverter extends ValueConverter<LazyValue> {
+
+    private final ValueConverter<Object> converter;
+
+    public LazyValueConverter(ValueConverter<?> converter) {
+        super(null, null);
+        this.converter = (ValueConverter<Object>) converter;
+    }
+
+    @Override
+    protected LazyValue decodeDefault() {
+        return new LazyValue<>(converter.decode(null));     //每次返回新的对象
+    }
+
+    @Override
+    protected LazyValue decode0(Object cacheValue) {
+        return LazyValue.ofCacheValue(cacheValue, converter);
+    }
+
+    @Override
+    public Object encode(Object dataValue) {
+        if (dataValue == null){
+            return converter.encode(null);
+        }
+        return encode0(dataValue);
+    }
+
+    @Override
+    protected Object encode0(Object dataValue) {
+        LazyValue<Object> lazyValue = (LazyValue<Object>) dataValue;
+        Object cacheValue = lazyValue.getCacheValue(converter);
+        if (cacheValue != null){
+            return cacheValue;      //没有访问过，原样写回
+        }
+        return converter.encode(lazyValue.get());
+    }
+}
@@ -1,6 +1,6 @@
 package com.game.core.cache.mapper;
 
-public class LongValueConverter extends ValueConverter<Long> {
+public class LongValueConverter extends ValueConverter<Long> implements ILongValueConverter {
 
     public LongValueConverter() {
         super(0L, 0L);
@@ -15,4 +15,14 @@ public class LongValueConverter extends ValueConverter<Long> {
     protected Object encode0(Object dataValue) {
         return dataValue;
     }
+
+    @Override
+    public long decodeLong(Object cacheValue) {
+        return cacheValue == null ? 0L : (long)cacheValue;
+    }
+
+    @Override
+    public Object encodeLong(long dataValue) {
+        return dataValue;
+    }
 }
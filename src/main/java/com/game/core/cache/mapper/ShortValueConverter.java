@@ -1,6 +1,6 @@
 package com.game.core.cache.mapper;
 
-public class ShortValueConverter extends ValueConverter<Short> {
+public class ShortValueConverter extends ValueConverter<Short> implements IIntValueConverter {
 
     public ShortValueConverter() {
         super((short)0, (short)0);
@@ -15,4 +15,14 @@ public class ShortValueConverter extends ValueConverter<Short> {
     protected Object encode0(Object dataValue) {
         return dataValue;
     }
+
+    @Override
+    public int decodeInt(Object cacheValue) {
+        return cacheValue == null ? 0 : (short)cacheValue;
+    }
+
+    @Override
+    public Object encodeInt(int dataValue) {
+        return (short)dataValue;
+    }
 }
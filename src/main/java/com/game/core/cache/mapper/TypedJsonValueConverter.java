@@ -0,0 +1,144 @@
+package com.game.core.cache.mapper;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.alibaba.fastjson.util.TypeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按照字段声明的泛型类型转换，不写入类名
+ * 字段类型在创建的时候确定，序列化和反序列化器提前生成
+ * 旧数据带有 @type 的时候依然能解析
+ */
+public class TypedJsonValueConverter extends ValueConverter<Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TypedJsonValueConverter.class);
+
+    private static final SerializerFeature[] mySerializerFeatures = new SerializerFeature[] {
+            SerializerFeature.WriteMapNullValue,
+            SerializerFeature.WriteNullListAsEmpty,
+            SerializerFeature.WriteNullStringAsEmpty,
+            SerializerFeature.WriteDateUseDateFormat,
+            SerializerFeature.IgnoreNonFieldGetter,
+            SerializerFeature.SkipTransientField,
+    };
+
+    private static final ParserConfig myParserConfig = new ParserConfig();
+    static {
+        myParserConfig.setAutoTypeSupport(true);      //兼容旧数据
+    }
+
+    /**
+     * 可以去掉类名的java类型（都是final类）
+     */
+    private static final Set<Class<?>> BOXED_CLASSES = new HashSet<>(Arrays.asList(String.class, Boolean.class, Character.class,
+            Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class));
+
+    private final Type type;
+
+    public TypedJsonValueConverter(Type type) {
+        super(null, "");
+        this.type = type;
+        //提前生成
+        myParserConfig.getDeserializer(type);
+        Class<?> rawClass = TypeUtils.getClass(type);
+        if (!rawClass.isPrimitive()){
+            SerializeConfig.globalInstance.getObjectWriter(rawClass);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    protected Object decode0(Object cacheValue) {
+        String string = String.valueOf(cacheValue);
+        try {
+            return JSON.parseObject(string, type, myParserConfig);
+        }
+        catch (RuntimeException e) {
+            logger.error("type:{} value:{} parse error, use JsonValueConverter", type.getTypeName(), string, e);
+            return TypeUtils.cast(JsonValueConverter.parse(string), type, myParserConfig);
+        }
+    }
+
+    @Override
+    protected Object encode0(Object dataValue) {
+        return JSON.toJSONString(dataValue, mySerializerFeatures);
+    }
+
+    /**
+     * 去掉类名之后能够还原的类型：基础类型和包装类型、字符串、枚举，字段也满足条件的final类，
+     * 以及元素也满足条件的集合、Map和数组；可能存放子类对象的类型（非final类、接口、Object）和泛型变量需要类名
+     * @param type
+     * @return
+     */
+    public static boolean isSupported(Type type){
+        return isSupported(type, new HashSet<>());
+    }
+
+    private static boolean isSupported(Type type, Set<Class<?>> checkedClasses){
+        if (type instanceof Class){
+            Class<?> aClass = (Class<?>) type;
+            if (aClass.isArray()){
+                return isSupported(aClass.getComponentType(), checkedClasses);
+            }
+            if (aClass.isPrimitive() || aClass.isEnum()){
+                return true;
+            }
+            if (aClass.getName().startsWith("java.")){
+                return BOXED_CLASSES.contains(aClass);
+            }
+            if (!Modifier.isFinal(aClass.getModifiers())){
+                return false;       //子类对象去掉类名之后还原成声明的类型，子类的字段会丢失
+            }
+            if (!checkedClasses.add(aClass)){
+                return true;        //循环引用
+            }
+            for (Class<?> cls = aClass; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+                for (Field field : cls.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)){
+                        continue;
+                    }
+                    if (!isSupported(field.getGenericType(), checkedClasses)){
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        if (type instanceof ParameterizedType){
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            Class<?> rawClass = (Class<?>) parameterizedType.getRawType();
+            if (!Collection.class.isAssignableFrom(rawClass) && !Map.class.isAssignableFrom(rawClass)){
+                return false;
+            }
+            for (Type argumentType : parameterizedType.getActualTypeArguments()) {
+                if (!isSupported(argumentType, checkedClasses)){
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (type instanceof GenericArrayType){
+            return isSupported(((GenericArrayType) type).getGenericComponentType(), checkedClasses);
+        }
+        return false;
+    }
+}
@@ -1,8 +1,12 @@
 package com.game.core.cache.mapper;
 
+import com.alibaba.fastjson.util.TypeUtils;
+import com.game.core.cache.data.LazyValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -18,10 +22,15 @@ public class ValueConvertMapper {
 
     private final JsonValueConverter defaultConverter;
     private final Map<String, ValueConverter<?>> convertMap;
+    /**
+     * 按照字段泛型类型创建的json转换器
+     */
+    private final Map<Type, ValueConverter<?>> typedConvertMap;
 
     public ValueConvertMapper() {
         this.defaultConverter = new JsonValueConverter();
         this.convertMap = new ConcurrentHashMap<>();
+        this.typedConvertMap = new ConcurrentHashMap<>();
         this.initializeInternalConvert();
     }
 
@@ -71,4 +80,31 @@ public class ValueConvertMapper {
     public <T> ValueConverter<T> getOrDefault(Class<T> cls){
         return (ValueConverter<T>)convertMap.getOrDefault(cls.getName(), defaultConverter);
     }
+
+    /**
+     * 没有注册的类型按照字段声明的泛型类型转换，不能还原的类型使用默认转换器
+     * @param description
+     * @return
+     */
+    public ValueConverter<?> getOrDefault(FieldAnnotation description){
+        return getOrDefault(description.getField().getGenericType());
+    }
+
+    public ValueConverter<?> getOrDefault(Type genericType){
+        Class<?> rawClass = TypeUtils.getClass(genericType);
+        ValueConverter<?> converter = convertMap.get(rawClass.getName());
+        if (converter != null){
+            return converter;
+        }
+        if (rawClass == LazyValue.class){
+            //延迟解码的字段按照泛型参数转换
+            Type valueType = genericType instanceof ParameterizedType ? ((ParameterizedType) genericType).getActualTypeArguments()[0] : Object.class;
+            ValueConverter<?> valueConverter = getOrDefault(valueType);
+            return typedConvertMap.computeIfAbsent(genericType, key -> new LazyValueConverter(valueConverter));
+        }
+        if (!TypedJsonValueConverter.isSupported(genericType)){
+            return defaultConverter;
+        }
+        return typedConvertMap.computeIfAbsent(genericType, TypedJsonValueConverter::new);
+    }
 }
@@ -30,11 +30,19 @@ public abstract class ValueConverter<T> {
 
     public final T decode(Object cacheValue){
         if (cacheValue == null || cacheValue.equals(defaultCacheValue)){
-            return defaultDataValue;
+            return decodeDefault();
         }
         return decode0(cacheValue);
     }
 
+    /**
+     * 默认值是可变对象的时候覆盖，每次返回新的对象
+     * @return
+     */
+    protected T decodeDefault(){
+        return defaultDataValue;
+    }
+
     /**
      * 数据源 -> 缓存数据
      * @param cacheValue
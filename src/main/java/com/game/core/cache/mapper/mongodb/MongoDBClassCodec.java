@@ -0,0 +1,306 @@
+package com.game.core.cache.mapper.mongodb;
+
+import com.game.core.cache.exception.CacheException;
+import com.game.core.cache.mapper.FieldAnnotation;
+import com.game.core.cache.mapper.IClassAnnotation;
+import com.game.core.cache.mapper.ClassConverter;
+import com.game.core.cache.mapper.ValueConvertMapper;
+import com.game.core.cache.mapper.ValueConverter;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonTypeClassMap;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实体类和BSON直接转换，不经过 Map<String, Object> 和 Document
+ * 字段的值依然经过 MongoDBConvertMapper 的转换器，保存的格式和 ClassConverter 一致
+ * @param <V>
+ */
+public class MongoDBClassCodec<V> implements Codec<V> {
+
+    private static final BsonTypeClassMap BSON_TYPE_CLASS_MAP = new BsonTypeClassMap();
+    private static final String SET_NAME = "$set";
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final Class<V> aClass;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fieldCodecs;
+    private final Map<String, FieldCodec> name2FieldCodecs;
+    private final CodecRegistry codecRegistry;
+
+    public MongoDBClassCodec(Class<V> aClass, IClassAnnotation classAnnotation, ValueConvertMapper convertMapper, CodecRegistry codecRegistry) {
+        this.aClass = aClass;
+        this.codecRegistry = codecRegistry;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<V> declaredConstructor = aClass.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(declaredConstructor).asType(MethodType.methodType(Object.class));
+            List<FieldAnnotation> fieldAnnotationList = classAnnotation.getFiledAnnotationList();
+            this.fieldCodecs = new FieldCodec[fieldAnnotationList.size()];
+            this.name2FieldCodecs = new HashMap<>(fieldCodecs.length * 4 / 3 + 1);
+            for (int i = 0; i < fieldCodecs.length; i++) {
+                FieldAnnotation description = fieldAnnotationList.get(i);
+                FieldCodec fieldCodec = new FieldCodec(i, lookup, description, convertMapper.getOrDefault(description), codecRegistry);
+                fieldCodecs[i] = fieldCodec;
+                name2FieldCodecs.put(fieldCodec.annotationName, fieldCodec);
+            }
+        }
+        catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new CacheException("cls:%s create bson codec error", e, aClass.getName());
+        }
+    }
+
+    @Override
+    public Class<V> getEncoderClass() {
+        return aClass;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, V value, EncoderContext encoderContext) {
+        encode(writer, value, 0, encoderContext);
+    }
+
+    /**
+     * @param writer
+     * @param value
+     * @param dirtyBits 只写变化的字段，0表示全部字段
+     * @param encoderContext
+     */
+    public void encode(BsonWriter writer, V value, long dirtyBits, EncoderContext encoderContext) {
+        if (dirtyBits != 0 && !hasDirtyField(dirtyBits)){
+            dirtyBits = 0;  //标记的字段都不存在的时候全量转换
+        }
+        writer.writeStartDocument();
+        try {
+            for (FieldCodec fieldCodec : fieldCodecs) {
+                if (dirtyBits != 0 && (dirtyBits & fieldCodec.bitMask) == 0){
+                    continue;
+                }
+                fieldCodec.encode(writer, value, encoderContext);
+            }
+        }
+        catch (CacheException e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new CacheException("cls:%s encode error", e, aClass.getName());
+        }
+        writer.writeEndDocument();
+    }
+
+    private boolean hasDirtyField(long dirtyBits){
+        for (FieldCodec fieldCodec : fieldCodecs) {
+            if ((dirtyBits & fieldCodec.bitMask) != 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V decode(BsonReader reader, DecoderContext decoderContext) {
+        try {
+            Object newInstance = (Object) constructor.invokeExact();
+            boolean[] decoded = new boolean[fieldCodecs.length];
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT){
+                FieldCodec fieldCodec = name2FieldCodecs.get(reader.readName());
+                if (fieldCodec == null){
+                    reader.skipValue();     //_id、键值和已经删除的字段
+                    continue;
+                }
+                fieldCodec.decode(reader, newInstance, decoderContext);
+                decoded[fieldCodec.position] = true;
+            }
+            reader.readEndDocument();
+            for (FieldCodec fieldCodec : fieldCodecs) {
+                if (!decoded[fieldCodec.position]){
+                    fieldCodec.decodeDefault(newInstance);
+                }
+            }
+            return aClass.cast(newInstance);
+        }
+        catch (CacheException e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new CacheException("cls:%s decode error", e, aClass.getName());
+        }
+    }
+
+    /**
+     * 回写使用的 {$set: {...}}，驱动转换的时候直接写入BsonDocument
+     * @param value
+     * @param dirtyBits
+     * @return
+     */
+    public Bson createSetUpdate(V value, long dirtyBits){
+        return new Bson() {
+            @Override
+            public <TDocument> BsonDocument toBsonDocument(Class<TDocument> documentClass, CodecRegistry registry) {
+                BsonDocument document = new BsonDocument();
+                BsonDocumentWriter writer = new BsonDocumentWriter(document);
+                writer.writeStartDocument();
+                writer.writeName(SET_NAME);
+                encode(writer, value, dirtyBits, ENCODER_CONTEXT);
+                writer.writeEndDocument();
+                return document;
+            }
+        };
+    }
+
+    /**
+     * 全部字段编码成BSON
+     * @param value
+     * @return
+     */
+    public byte[] encodeBytes(V value){
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            encode(writer, value, 0, ENCODER_CONTEXT);
+        }
+        return buffer.toByteArray();
+    }
+
+    public V decodeBytes(byte[] bytes){
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+            return decode(reader, DECODER_CONTEXT);
+        }
+    }
+
+    /**
+     * 已经编码好的数据生成 {$set: {...}}，全量的时候直接使用原始的字节
+     * @param bytes encodeBytes 的结果
+     * @param dirtyBits
+     * @return
+     */
+    public Bson createSetUpdate(byte[] bytes, long dirtyBits){
+        RawBsonDocument document = new RawBsonDocument(bytes);
+        if (dirtyBits == 0 || !hasDirtyField(dirtyBits)){
+            return new BsonDocument(SET_NAME, document);
+        }
+        BsonDocument setDocument = new BsonDocument();
+        for (FieldCodec fieldCodec : fieldCodecs) {
+            if ((dirtyBits & fieldCodec.bitMask) == 0){
+                continue;
+            }
+            BsonValue bsonValue = document.get(fieldCodec.annotationName);
+            if (bsonValue != null){
+                setDocument.append(fieldCodec.annotationName, bsonValue);
+            }
+        }
+        return new BsonDocument(SET_NAME, setDocument);
+    }
+
+    private static final class FieldCodec {
+
+        private final int position;
+        private final long bitMask;
+        private final String annotationName;
+        private final ValueConverter<?> converter;
+        private final CodecRegistry codecRegistry;
+        private final boolean primitive;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        /**
+         * long/int/short/byte字段和ClassConverter使用相同的判断（ILongValueConverter/IIntValueConverter），不需要装箱
+         * short/byte按照int32读写
+         */
+        private final MethodHandle longGetter;
+        private final MethodHandle longSetter;
+        private final MethodHandle intGetter;
+        private final MethodHandle intSetter;
+
+        private FieldCodec(int position, MethodHandles.Lookup lookup, FieldAnnotation description, ValueConverter<?> converter, CodecRegistry codecRegistry) throws IllegalAccessException {
+            this.position = position;
+            this.codecRegistry = codecRegistry;
+            this.bitMask = 1L << description.getUniqueId();
+            this.annotationName = description.getAnnotationName();
+            this.converter = converter;
+            Class<?> type = description.getType();
+            this.primitive = type.isPrimitive();
+            MethodHandle fieldGetter = lookup.unreflectGetter(description.getField());
+            MethodHandle fieldSetter = lookup.unreflectSetter(description.getField());
+            this.getter = fieldGetter.asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = fieldSetter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            boolean isLong = ClassConverter.isLongField(type, converter);
+            boolean isInt = ClassConverter.isIntField(type, converter);
+            this.longGetter = isLong ? fieldGetter.asType(MethodType.methodType(long.class, Object.class)) : null;
+            this.longSetter = isLong ? fieldSetter.asType(MethodType.methodType(void.class, Object.class, long.class)) : null;
+            this.intGetter = isInt ? fieldGetter.asType(MethodType.methodType(int.class, Object.class)) : null;
+            this.intSetter = isInt ? MethodHandles.explicitCastArguments(fieldSetter, MethodType.methodType(void.class, Object.class, int.class)) : null;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void encode(BsonWriter writer, Object value, EncoderContext encoderContext) throws Throwable {
+            if (longGetter != null){
+                writer.writeInt64(annotationName, (long) longGetter.invokeExact(value));
+                return;
+            }
+            if (intGetter != null){
+                writer.writeInt32(annotationName, (int) intGetter.invokeExact(value));
+                return;
+            }
+            Object encode = converter.encode((Object) getter.invokeExact(value));
+            if (encode == null){
+                throw new CacheException("name:%s can't be null", annotationName);
+            }
+            writer.writeName(annotationName);
+            Codec codec = codecRegistry.get(encode.getClass());
+            encoderContext.encodeWithChildContext(codec, writer, encode);
+        }
+
+        private void decode(BsonReader reader, Object value, DecoderContext decoderContext) throws Throwable {
+            BsonType bsonType = reader.getCurrentBsonType();
+            if (longSetter != null && bsonType == BsonType.INT64){
+                longSetter.invokeExact(value, reader.readInt64());
+                return;
+            }
+            if (intSetter != null && bsonType == BsonType.INT32){
+                intSetter.invokeExact(value, reader.readInt32());
+                return;
+            }
+            Object cacheValue;
+            if (bsonType == BsonType.NULL){
+                reader.readNull();
+                cacheValue = null;
+            }
+            else {
+                Class<?> valueClass = BSON_TYPE_CLASS_MAP.get(bsonType);
+                cacheValue = codecRegistry.get(valueClass).decode(reader, decoderContext);
+            }
+            setter.invokeExact(value, (Object) converter.decode(cacheValue));
+        }
+
+        private void decodeDefault(Object value) throws Throwable {
+            Object defaultValue = converter.decode(null);
+            if (defaultValue == null && primitive){
+                return;
+            }
+            setter.invokeExact(value, defaultValue);
+        }
+    }
+}
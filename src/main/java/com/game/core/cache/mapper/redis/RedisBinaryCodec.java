@@ -0,0 +1,517 @@
+package com.game.core.cache.mapper.redis;
+
+import com.game.core.cache.exception.CacheException;
+import com.game.core.cache.mapper.FieldAnnotation;
+import com.game.core.cache.mapper.IClassAnnotation;
+import com.game.core.cache.mapper.ValueConvertMapper;
+import com.game.core.cache.mapper.ValueConverter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Redis的二进制格式：
+ * [byte MAGIC][varint versionId][varint 标记位][字段...]
+ * 字段：[varint (index << 3 | 类型)][值]，index 是 @CacheFiled(index)
+ * 基础类型走zigzag varint/定长，字符串和字节数组带长度，其他类型走字段的ValueConverter（JSON）
+ * 不认识的index按照类型跳过，所以增减字段之后旧数据依然可以读
+ * @param <V>
+ */
+public class RedisBinaryCodec<V> {
+
+    /**
+     * 不会出现在JSON文本的第一个字节，用来区分旧的JSON数据
+     */
+    public static final byte MAGIC = (byte) 0xC1;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_BYTES = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final Class<V> aClass;
+    private final int versionId;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fieldCodecs;
+    /**
+     * 按照index查找，index最大是DataBitIndex.MaximumIndex
+     */
+    private final FieldCodec[] indexFieldCodecs;
+
+    public RedisBinaryCodec(Class<V> aClass, IClassAnnotation classAnnotation, int versionId, ValueConvertMapper convertMapper) {
+        this.aClass = aClass;
+        this.versionId = versionId;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<V> declaredConstructor = aClass.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(declaredConstructor).asType(MethodType.methodType(Object.class));
+            List<FieldAnnotation> fieldAnnotationList = classAnnotation.getFiledAnnotationList();
+            this.fieldCodecs = new FieldCodec[fieldAnnotationList.size()];
+            int maximumIndex = 0;
+            for (int i = 0; i < fieldCodecs.length; i++) {
+                FieldAnnotation description = fieldAnnotationList.get(i);
+                fieldCodecs[i] = createFieldCodec(lookup, description, convertMapper.getOrDefault(description));
+                maximumIndex = Math.max(maximumIndex, description.getUniqueId());
+            }
+            this.indexFieldCodecs = new FieldCodec[maximumIndex + 1];
+            for (FieldCodec fieldCodec : fieldCodecs) {
+                indexFieldCodecs[fieldCodec.index] = fieldCodec;
+            }
+        }
+        catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new CacheException("cls:%s create binary codec error", e, aClass.getName());
+        }
+    }
+
+    public static boolean isBinary(byte[] bytes){
+        return bytes.length > 0 && bytes[0] == MAGIC;
+    }
+
+    /**
+     * @param dataValue
+     * @param bitIndexBits 数据的标记位
+     * @return
+     */
+    public byte[] encode(V dataValue, long bitIndexBits){
+        Output output = new Output(64);
+        output.writeByte(MAGIC);
+        output.writeVarLong(versionId);
+        output.writeVarLong(bitIndexBits);
+        try {
+            for (FieldCodec fieldCodec : fieldCodecs) {
+                fieldCodec.encode(dataValue, output);
+            }
+        }
+        catch (Throwable e) {
+            throw new CacheException("cls:%s encode error", e, aClass.getName());
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @param bytes
+     * @param bitIndexBits 长度为1的数组，返回数据的标记位
+     * @return
+     */
+    public V decode(byte[] bytes, long[] bitIndexBits){
+        Input input = new Input(bytes);
+        if (input.readByte() != MAGIC){
+            throw new CacheException("cls:%s not binary data", aClass.getName());
+        }
+        try {
+            input.readVarLong();    //versionId，字段按照index读取，不同版本可以兼容
+            bitIndexBits[0] = input.readVarLong();
+            Object newInstance = (Object) constructor.invokeExact();
+            boolean[] decoded = new boolean[indexFieldCodecs.length];
+            while (input.remaining() > 0){
+                int tag = (int) input.readVarLong();
+                int index = tag >>> 3;
+                int wireType = tag & 7;
+                FieldCodec fieldCodec = index < indexFieldCodecs.length ? indexFieldCodecs[index] : null;
+                if (fieldCodec == null || fieldCodec.wireType != wireType){
+                    input.skip(wireType);
+                    continue;
+                }
+                fieldCodec.decode(newInstance, input);
+                decoded[index] = true;
+            }
+            //没有写入的字段（新增的字段或者null）使用转换器的默认值
+            for (FieldCodec fieldCodec : fieldCodecs) {
+                if (!decoded[fieldCodec.index]){
+                    fieldCodec.decodeDefault(newInstance);
+                }
+            }
+            return aClass.cast(newInstance);
+        }
+        catch (Throwable e) {
+            throw new CacheException("cls:%s decode error", e, aClass.getName());
+        }
+    }
+
+    private static FieldCodec createFieldCodec(MethodHandles.Lookup lookup, FieldAnnotation description, ValueConverter<?> converter) throws IllegalAccessException {
+        Field field = description.getField();
+        Class<?> type = field.getType();
+        MethodHandle getter = lookup.unreflectGetter(field);
+        MethodHandle setter = lookup.unreflectSetter(field);
+        int index = description.getUniqueId();
+        if (type == long.class || type == int.class || type == short.class || type == byte.class || type == char.class){
+            return new LongFieldCodec(index, getter, setter, converter);
+        }
+        if (type == boolean.class){
+            return new BooleanFieldCodec(index, getter, setter, converter);
+        }
+        if (type == double.class){
+            return new DoubleFieldCodec(index, getter, setter, converter);
+        }
+        if (type == float.class){
+            return new FloatFieldCodec(index, getter, setter, converter);
+        }
+        if (type == String.class){
+            return new StringFieldCodec(index, getter, setter, converter);
+        }
+        if (type == byte[].class){
+            return new BytesFieldCodec(index, getter, setter, converter);
+        }
+        return new ConverterFieldCodec(index, getter, setter, converter);
+    }
+
+    private static abstract class FieldCodec {
+
+        protected final int index;
+        protected final int wireType;
+        protected final int tag;
+        private final boolean primitive;
+        private final MethodHandle defaultSetter;
+        private final ValueConverter<?> converter;
+
+        private FieldCodec(int index, int wireType, MethodHandle setter, ValueConverter<?> converter) {
+            this.index = index;
+            this.wireType = wireType;
+            this.tag = index << 3 | wireType;
+            this.primitive = setter.type().parameterType(1).isPrimitive();
+            this.defaultSetter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.converter = converter;
+        }
+
+        protected abstract void encode(Object dataValue, Output output) throws Throwable;
+
+        protected abstract void decode(Object dataValue, Input input) throws Throwable;
+
+        private void decodeDefault(Object dataValue) throws Throwable {
+            Object defaultValue = converter.decode(null);
+            if (defaultValue == null && primitive){
+                return;     //基础类型没有默认值的转换器，保留构造函数的值
+            }
+            defaultSetter.invokeExact(dataValue, defaultValue);
+        }
+    }
+
+    /**
+     * 整数类型（long/int/short/byte/char），不装箱
+     */
+    private static final class LongFieldCodec extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private LongFieldCodec(int index, MethodHandle getter, MethodHandle setter, ValueConverter<?> converter) {
+            super(index, WIRE_VARINT, setter, converter);
+            this.getter = getter.asType(MethodType.methodType(long.class, Object.class));
+            //long -> int/short/byte/char 的窄化转换
+            this.setter = MethodHandles.explicitCastArguments(setter, MethodType.methodType(void.class, Object.class, long.class));
+        }
+
+        @Override
+        protected void encode(Object dataValue, Output output) throws Throwable {
+            output.writeVarLong(tag);
+            output.writeZigZagLong((long) getter.invokeExact(dataValue));
+        }
+
+        @Override
+        protected void decode(Object dataValue, Input input) throws Throwable {
+            setter.invokeExact(dataValue, input.readZigZagLong());
+        }
+    }
+
+    private static final class BooleanFieldCodec extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private BooleanFieldCodec(int index, MethodHandle getter, MethodHandle setter, ValueConverter<?> converter) {
+            super(index, WIRE_VARINT, setter, converter);
+            this.getter = getter.asType(MethodType.methodType(boolean.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+        }
+
+        @Override
+        protected void encode(Object dataValue, Output output) throws Throwable {
+            output.writeVarLong(tag);
+            output.writeVarLong((boolean) getter.invokeExact(dataValue) ? 1 : 0);
+        }
+
+        @Override
+        protected void decode(Object dataValue, Input input) throws Throwable {
+            setter.invokeExact(dataValue, input.readVarLong() != 0);
+        }
+    }
+
+    private static final class DoubleFieldCodec extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private DoubleFieldCodec(int index, MethodHandle getter, MethodHandle setter, ValueConverter<?> converter) {
+            super(index, WIRE_FIXED64, setter, converter);
+            this.getter = getter.asType(MethodType.methodType(double.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+        }
+
+        @Override
+        protected void encode(Object dataValue, Output output) throws Throwable {
+            output.writeVarLong(tag);
+            output.writeFixedLong(Double.doubleToRawLongBits((double) getter.invokeExact(dataValue)));
+        }
+
+        @Override
+        protected void decode(Object dataValue, Input input) throws Throwable {
+            setter.invokeExact(dataValue, Double.longBitsToDouble(input.readFixedLong()));
+        }
+    }
+
+    private static final class FloatFieldCodec extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private FloatFieldCodec(int index, MethodHandle getter, MethodHandle setter, ValueConverter<?> converter) {
+            super(index, WIRE_FIXED32, setter, converter);
+            this.getter = getter.asType(MethodType.methodType(float.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, float.class));
+        }
+
+        @Override
+        protected void encode(Object dataValue, Output output) throws Throwable {
+            output.writeVarLong(tag);
+            output.writeFixedInt(Float.floatToRawIntBits((float) getter.invokeExact(dataValue)));
+        }
+
+        @Override
+        protected void decode(Object dataValue, Input input) throws Throwable {
+            setter.invokeExact(dataValue, Float.intBitsToFloat(input.readFixedInt()));
+        }
+    }
+
+    private static final class StringFieldCodec extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private StringFieldCodec(int index, MethodHandle getter, MethodHandle setter, ValueConverter<?> converter) {
+            super(index, WIRE_BYTES, setter, converter);
+            this.getter = getter.asType(MethodType.methodType(String.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, String.class));
+        }
+
+        @Override
+        protected void encode(Object dataValue, Output output) throws Throwable {
+            String value = (String) getter.invokeExact(dataValue);
+            if (value == null){
+                return;
+            }
+            output.writeVarLong(tag);
+            output.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        protected void decode(Object dataValue, Input input) throws Throwable {
+            setter.invokeExact(dataValue, new String(input.readBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class BytesFieldCodec extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private BytesFieldCodec(int index, MethodHandle getter, MethodHandle setter, ValueConverter<?> converter) {
+            super(index, WIRE_BYTES, setter, converter);
+            this.getter = getter.asType(MethodType.methodType(byte[].class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, byte[].class));
+        }
+
+        @Override
+        protected void encode(Object dataValue, Output output) throws Throwable {
+            byte[] value = (byte[]) getter.invokeExact(dataValue);
+            if (value == null){
+                return;
+            }
+            output.writeVarLong(tag);
+            output.writeBytes(value);
+        }
+
+        @Override
+        protected void decode(Object dataValue, Input input) throws Throwable {
+            setter.invokeExact(dataValue, input.readBytes());
+        }
+    }
+
+    /**
+     * 其他类型使用字段的转换器转成字符串（JSON）
+     */
+    private static final class ConverterFieldCodec extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final ValueConverter<?> converter;
+
+        private ConverterFieldCodec(int index, MethodHandle getter, MethodHandle setter, ValueConverter<?> converter) {
+            super(index, WIRE_BYTES, setter, converter);
+            this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.converter = converter;
+        }
+
+        @Override
+        protected void encode(Object dataValue, Output output) throws Throwable {
+            Object encode = converter.encode((Object) getter.invokeExact(dataValue));
+            if (encode == null){
+                return;
+            }
+            output.writeVarLong(tag);
+            output.writeBytes(String.valueOf(encode).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        protected void decode(Object dataValue, Input input) throws Throwable {
+            String string = new String(input.readBytes(), StandardCharsets.UTF_8);
+            setter.invokeExact(dataValue, (Object) converter.decode(string));
+        }
+    }
+
+    private static final class Output {
+
+        private byte[] buffer;
+        private int position;
+
+        private Output(int capacity) {
+            this.buffer = new byte[capacity];
+            this.position = 0;
+        }
+
+        private void ensure(int length){
+            if (position + length > buffer.length){
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+            }
+        }
+
+        private void writeByte(byte value){
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        private void writeVarLong(long value){
+            ensure(10);
+            while ((value & ~0x7FL) != 0){
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeZigZagLong(long value){
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeFixedLong(long value){
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[position++] = (byte) (value >>> (i << 3));
+            }
+        }
+
+        private void writeFixedInt(int value){
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                buffer[position++] = (byte) (value >>> (i << 3));
+            }
+        }
+
+        private void writeBytes(byte[] bytes){
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private byte[] toByteArray(){
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] buffer;
+        private int position;
+
+        private Input(byte[] buffer) {
+            this.buffer = buffer;
+            this.position = 0;
+        }
+
+        private int remaining(){
+            return buffer.length - position;
+        }
+
+        private byte readByte(){
+            return buffer[position++];
+        }
+
+        private long readVarLong(){
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0){
+                    return value;
+                }
+            }
+            throw new CacheException("malformed varint");
+        }
+
+        private long readZigZagLong(){
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readFixedLong(){
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (long) (buffer[position++] & 0xFF) << (i << 3);
+            }
+            return value;
+        }
+
+        private int readFixedInt(){
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= (buffer[position++] & 0xFF) << (i << 3);
+            }
+            return value;
+        }
+
+        private byte[] readBytes(){
+            int length = (int) readVarLong();
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        private void skip(int wireType){
+            switch (wireType){
+                case WIRE_VARINT:
+                    readVarLong();
+                    break;
+                case WIRE_FIXED64:
+                    position += 8;
+                    break;
+                case WIRE_BYTES:
+                    int length = (int) readVarLong();
+                    position += length;
+                    break;
+                case WIRE_FIXED32:
+                    position += 4;
+                    break;
+                default:
+                    throw new CacheException("unknown wire type:%s", wireType);
+            }
+        }
+    }
+}
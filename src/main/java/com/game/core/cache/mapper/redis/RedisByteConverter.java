@@ -1,8 +1,9 @@
 package com.game.core.cache.mapper.redis;
 
+import com.game.core.cache.mapper.IIntValueConverter;
 import com.game.core.cache.mapper.ValueConverter;
 
-public class RedisByteConverter extends ValueConverter<Byte> {
+public class RedisByteConverter extends ValueConverter<Byte> implements IIntValueConverter {
 
     public RedisByteConverter() {
         super((byte)0, (byte)0);
@@ -17,4 +18,14 @@ public class RedisByteConverter extends ValueConverter<Byte> {
     protected Object encode0(Object dataValue) {
         return (int) (Byte) dataValue;
     }
+
+    @Override
+    public int decodeInt(Object cacheValue) {
+        return cacheValue == null ? 0 : ((Number)cacheValue).byteValue();
+    }
+
+    @Override
+    public Object encodeInt(int dataValue) {
+        return dataValue == 0 ? (Object) (byte)0 : (int)(byte)dataValue;
+    }
 }
@@ -1,8 +1,9 @@
 package com.game.core.cache.mapper.redis;
 
+import com.game.core.cache.mapper.IIntValueConverter;
 import com.game.core.cache.mapper.ValueConverter;
 
-public class RedisIntegerConverter extends ValueConverter<Integer> {
+public class RedisIntegerConverter extends ValueConverter<Integer> implements IIntValueConverter {
 
     public RedisIntegerConverter() {
         super(0, 0);
@@ -17,4 +18,14 @@ public class RedisIntegerConverter extends ValueConverter<Integer> {
     protected Object encode0(Object dataValue) {
         return dataValue;
     }
+
+    @Override
+    public int decodeInt(Object cacheValue) {
+        return cacheValue == null ? 0 : (Integer)cacheValue;
+    }
+
+    @Override
+    public Object encodeInt(int dataValue) {
+        return dataValue;
+    }
 }
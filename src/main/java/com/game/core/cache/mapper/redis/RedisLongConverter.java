@@ -1,8 +1,9 @@
 package com.game.core.cache.mapper.redis;
 
+import com.game.core.cache.mapper.ILongValueConverter;
 import com.game.core.cache.mapper.ValueConverter;
 
-public class RedisLongConverter extends ValueConverter<Long> {
+public class RedisLongConverter extends ValueConverter<Long> implements ILongValueConverter {
 
     public RedisLongConverter() {
         super(0L, 0L);
@@ -17,4 +18,14 @@ public class RedisLongConverter extends ValueConverter<Long> {
     protected Object encode0(Object dataValue) {
         return dataValue.toString();
     }
+
+    @Override
+    public long decodeLong(Object cacheValue) {
+        return cacheValue == null ? 0L : Long.parseLong(cacheValue.toString());
+    }
+
+    @Override
+    public Object encodeLong(long dataValue) {
+        return dataValue == 0 ? (Object) 0L : Long.toString(dataValue);
+    }
 }
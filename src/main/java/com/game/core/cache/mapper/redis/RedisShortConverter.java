@@ -1,8 +1,9 @@
 package com.game.core.cache.mapper.redis;
 
+import com.game.core.cache.mapper.IIntValueConverter;
 import com.game.core.cache.mapper.ValueConverter;
 
-public class RedisShortConverter extends ValueConverter<Short> {
+public class RedisShortConverter extends ValueConverter<Short> implements IIntValueConverter {
 
     public RedisShortConverter() {
         super((short)0, (short)0);
@@ -17,4 +18,14 @@ public class RedisShortConverter extends ValueConverter<Short> {
     protected Object encode0(Object dataValue) {
         return (int) (Short) dataValue;
     }
+
+    @Override
+    public int decodeInt(Object cacheValue) {
+        return cacheValue == null ? 0 : ((Number)cacheValue).shortValue();
+    }
+
+    @Override
+    public Object encodeInt(int dataValue) {
+        return dataValue == 0 ? (Object) (short)0 : (int)(short)dataValue;
+    }
 }
@@ -6,8 +6,10 @@ import com.game.core.cache.data.DataCollection;
 import com.game.core.cache.data.IData;
 import com.game.core.cache.key.IKeyValueBuilder;
 import com.game.core.cache.source.interact.CacheDBCollection;
+import com.game.core.cache.source.wal.WriteAheadLogUtil;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,4 +26,44 @@ public abstract class CacheDbSource<K, V extends IData<K>> extends CacheSource<K
         List<V> valueList = converter.convert2ValueList(cacheValuesList);
         return new DataCollection<>(valueList, new CacheInformation());
     }
+
+    @Override
+    public Map<Long, DataCollection<K, V>> getCollections(Collection<Long> primaryKeys) {
+        Map<Long, CacheDBCollection> cacheCollectionMap = getPrimaryCollections(primaryKeys);
+        Map<Long, DataCollection<K, V>> collectionMap = new HashMap<>(cacheCollectionMap.size());
+        for (Map.Entry<Long, CacheDBCollection> entry : cacheCollectionMap.entrySet()) {
+            List<V> valueList = converter.convert2ValueList(entry.getValue().getCacheValuesList());
+            collectionMap.put(entry.getKey(), new DataCollection<>(valueList, new CacheInformation()));
+        }
+        return collectionMap;
+    }
+
+    /**
+     * 默认逐个查询，支持批量查询的数据源覆盖
+     * @param primaryKeys
+     * @return
+     */
+    @Override
+    public Map<Long, CacheDBCollection> getPrimaryCollections(Collection<Long> primaryKeys) {
+        Map<Long, CacheDBCollection> cacheCollectionMap = new HashMap<>(primaryKeys.size());
+        for (long primaryKey : primaryKeys) {
+            cacheCollectionMap.put(primaryKey, getPrimaryCollection(primaryKey));
+        }
+        return cacheCollectionMap;
+    }
+
+    /**
+     * 默认使用 convert2Cache 之后的数据编码，能直接编码的数据源覆盖
+     * @param value
+     * @return
+     */
+    @Override
+    public byte[] encodeSnapshot(V value) {
+        return WriteAheadLogUtil.encode(converter.convert2Cache(value));
+    }
+
+    @Override
+    public V decodeSnapshot(byte[] snapshot) {
+        return converter.convert2Value(WriteAheadLogUtil.decode(snapshot));
+    }
 }
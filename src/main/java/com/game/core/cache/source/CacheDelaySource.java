@@ -2,20 +2,26 @@ package com.game.core.cache.source;
 
 import com.game.common.config.EvnCoreConfigs;
 import com.game.common.config.EvnCoreType;
+import com.game.common.config.IEvnConfig;
 import com.game.common.lock.LockKey;
 import com.game.common.lock.LockUtil;
 import com.game.common.util.RandomUtil;
 import com.game.core.cache.CacheInformation;
+import com.game.core.cache.CacheKeyValue;
 import com.game.core.cache.ICacheUniqueId;
+import com.game.core.cache.data.DataBitIndex;
 import com.game.core.cache.data.DataCollection;
 import com.game.core.cache.data.IData;
 import com.game.core.cache.exception.CacheException;
 import com.game.core.cache.mapper.IClassConverter;
 import com.game.core.cache.source.executor.CacheCallable;
 import com.game.core.cache.source.executor.CacheRunnable;
+import com.game.core.cache.source.executor.CacheTimingWheel;
 import com.game.core.cache.source.executor.ICacheExecutor;
 import com.game.core.cache.source.executor.ICacheFuture;
 import com.game.core.cache.source.executor.ICacheSource;
+import com.game.core.cache.source.wal.WriteAheadLog;
+import com.game.core.cache.source.wal.WriteAheadLogUtil;
 import com.mongodb.Function;
 import jodd.util.ThreadUtil;
 import org.slf4j.Logger;
@@ -27,9 +33,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -41,21 +49,71 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
 
     public static final Map<String, Object> EMPTY = Collections.emptyMap();
 
+    private static final long SCHEDULE_PERIOD = 500L;
+    /**
+     * 加锁失败没有回写的数据，重试间隔
+     */
+    private static final long RETRY_DURATION = 1000L;
+
     private final CacheDbSource<K, V> cacheSource;
     private final Map<Long, PrimaryDelayCache<K, V>> primaryCacheMap;
     private final ICacheExecutor executor;
     private List<Consumer<PrimaryDelayCache<K, V>>> flushCallbacks;
+    /**
+     * 按照主键分配到不同的回写通道，通道之间并行回写
+     */
+    private final List<FlushLane> flushLanes;
+    /**
+     * 没有开启预写日志时为null
+     */
+    private final WriteAheadLog writeAheadLog;
+    private boolean started;
 
     public CacheDelaySource(CacheDbSource<K, V> cacheSource, ICacheExecutor executor) {
         this.cacheSource = cacheSource;
         this.primaryCacheMap = new ConcurrentHashMap<>();
         this.executor = executor;
         this.flushCallbacks = new ArrayList<>();
+        int laneCount = Math.max(1, EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getInt("flush.laneCount"));
+        this.flushLanes = new ArrayList<>(laneCount);
+        long currentTime = System.currentTimeMillis();
+        for (int index = 0; index < laneCount; index++) {
+            flushLanes.add(new FlushLane(currentTime));
+        }
+        this.writeAheadLog = WriteAheadLogUtil.createWriteAheadLog(getScheduleName());
+    }
+
+    /**
+     * 先回放预写日志，再开始定时回写（构造函数里不启动，子类初始化完成之后由创建方调用）
+     */
+    @Override
+    public synchronized void start() {
+        if (started){
+            return;
+        }
+        started = true;
+        if (writeAheadLog != null){
+            replayWriteAheadLog();
+        }
         //初始化~
-        CacheRunnable cacheRunnable = new CacheRunnable(getScheduleName(), this::onScheduleAll);
-        long randomValue = RandomUtil.nextLong(1000, 2000);
-        long initialDelay = randomValue * 50 / 50;    //取100ms的整数倍
-        executor.scheduleAtFixedRate(cacheRunnable, initialDelay, 500L, TimeUnit.MILLISECONDS);
+        for (int index = 0; index < flushLanes.size(); index++) {
+            FlushLane flushLane = flushLanes.get(index);
+            String name = flushLanes.size() == 1 ? getScheduleName() : getScheduleName() + "." + index;
+            CacheRunnable cacheRunnable = new CacheRunnable(name, flushLane::onSchedule);
+            long randomValue = RandomUtil.nextLong(1000, 2000);
+            long initialDelay = randomValue * 50 / 50;    //取100ms的整数倍
+            executor.scheduleAtFixedRate(cacheRunnable, initialDelay, SCHEDULE_PERIOD, TimeUnit.MILLISECONDS);
+        }
+        if (writeAheadLog != null){
+            long forceInterval = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getDuration("flush.wal.forceInterval", TimeUnit.MILLISECONDS);
+            CacheRunnable forceRunnable = new CacheRunnable(getScheduleName() + ".wal", writeAheadLog::force);
+            executor.scheduleAtFixedRate(forceRunnable, forceInterval, forceInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public LockKey getLockKey() {
+        return cacheSource.getLockKey();
     }
 
     @Override
@@ -86,20 +144,42 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
         return new DataCollection<>(valueList, collection.getCacheInformation());
     }
 
+    @Override
+    public Map<Long, DataCollection<K, V>> getCollections(Collection<Long> primaryKeys) {
+        Map<Long, DataCollection<K, V>> collectionMap = cacheSource.getCollections(primaryKeys);
+        Map<Long, DataCollection<K, V>> resultMap = new HashMap<>(collectionMap.size());
+        for (Map.Entry<Long, DataCollection<K, V>> entry : collectionMap.entrySet()) {
+            DataCollection<K, V> collection = entry.getValue();
+            List<V> valueList = replaceAllDataValueList(entry.getKey(), collection.getDataList());
+            resultMap.put(entry.getKey(), new DataCollection<>(valueList, collection.getCacheInformation()));
+        }
+        return resultMap;
+    }
+
     @Override
     public boolean replaceOne(long primaryKey, V value) {
-        V cloneValue = cloneValue(value);
-        PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, PrimaryDelayCache::new);
-        KeyDataValue<K, V> keyDataValue = KeyDataValue.createCache(cloneValue.secondaryKey(), cloneValue);
+        PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, this::newPrimaryCache);
+        KeyDataValue<K, V> keyDataValue = createKeyDataValue(value);
+        if (!appendWriteAheadLog(primaryKey, keyDataValue)){
+            return false;
+        }
         primaryCache.add(keyDataValue);	//直接替换还有BUG，因为里面的标记会被覆盖【暂时用全量覆盖掉】
         return true;
     }
 
     @Override
     public boolean replaceBatch(long primaryKey, Collection<V> values) {
-        PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, PrimaryDelayCache::new);
+        PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, this::newPrimaryCache);
+        List<KeyDataValue<K, V>> keyDataValueList = new ArrayList<>(values.size());
         for (V value : values) {
-            primaryCache.add(KeyDataValue.createCache(value.secondaryKey(), cloneValue(value)));
+            KeyDataValue<K, V> keyDataValue = createKeyDataValue(value);
+            if (!appendWriteAheadLog(primaryKey, keyDataValue)){
+                return false;
+            }
+            keyDataValueList.add(keyDataValue);
+        }
+        for (KeyDataValue<K, V> keyDataValue : keyDataValueList) {
+            primaryCache.add(keyDataValue);
         }
         return true;
     }
@@ -116,14 +196,22 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
 
     @Override
     public boolean deleteOne(long primaryKey, K secondaryKey) {
-        PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, PrimaryDelayCache::new);
+        PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, this::newPrimaryCache);
+        if (!appendWriteAheadLog(primaryKey, KeyDataValue.createDelete(secondaryKey))){
+            return false;
+        }
         primaryCache.deleteCacheValue(secondaryKey);
         return true;
     }
 
     @Override
     public boolean deleteBatch(long primaryKey, Collection<K> secondaryKeys) {
-        PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, PrimaryDelayCache::new);
+        PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, this::newPrimaryCache);
+        for (K secondaryKey : secondaryKeys) {
+            if (!appendWriteAheadLog(primaryKey, KeyDataValue.createDelete(secondaryKey))){
+                return false;
+            }
+        }
         for (K secondaryKey : secondaryKeys) {
             primaryCache.deleteCacheValue(secondaryKey);
         }
@@ -152,38 +240,9 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
 
     @Override
     public boolean flushAll(long currentTime) {
-        String string = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getString("flush.logPath");
-        File parent = new File(string + "_" + currentTime);
-        if (!parent.exists()){
-            boolean success = parent.mkdir();
-            if (!success){
-                logger.error("mkdir error:{}", string);
-            }
-        }
-        ICacheUniqueId cacheDaoUnique = getCacheUniqueId();
-        ICacheKeyValueBuilder<K> keyValueBuilder = getKeyValueBuilder();
-        Collection<PrimaryDelayCache<K, V>> primaryDelayCaches = primaryCacheMap.values();
-        for (PrimaryDelayCache<K, V> delayCache : primaryDelayCaches) {
-            StringBuilder builder = new StringBuilder();
-            long primaryKey = delayCache.getPrimaryKey();
-            builder.append("primaryKey:").append(primaryKey).append("\n");
-            Collection<KeyDataValue<K, V>> dataValues = delayCache.getAll();
-            for (KeyDataValue<K, V> dataValue : dataValues) {
-                String secondaryKeyString = keyValueBuilder.toSecondaryKeyString(dataValue.getKey());
-                builder.append("key:").append(secondaryKeyString).append("\t")
-                        .append("command:").append(dataValue.getCacheCommand().name()).append("\t")
-                        .append("data:").append(getConverter().convert2Cache(dataValue.getDataValue())).append("\n");
-            }
-            try {
-                String filename = String.format("%s.cache", cacheDaoUnique.getRedisKeyString(primaryKey));
-                FileWriter writer = new FileWriter(parent.getAbsolutePath() + "/" + filename);
-                writer.append(builder.toString());
-                writer.flush();
-                writer.close();
-            }
-            catch (IOException e) {
-                logger.error("{}", builder.toString(), e);
-            }
+        if (writeAheadLog == null){
+            //开启预写日志之后不需要再输出文本
+            dumpPrimaryCache(currentTime);
         }
         int tryCount = Math.max(2, EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getInt("flush.tryAllCount"));
         while (tryCount-- > 0 && !primaryCacheMap.isEmpty()){
@@ -198,7 +257,7 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
 
     @Override
     public void flushOne(long primaryKey, long currentTime, Consumer<Boolean> consumer) {
-        CacheCallable<Boolean> callable = new CacheCallable<>(getScheduleName(), () -> {
+        CacheCallable<Boolean> callable = new CacheCallable<>(getScheduleName() + ".flushOne." + primaryKey, () -> {
             boolean isSuccess = false;
             int tryCount = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getInt("flush.tryOneCount");
             for (int count = 0; count < tryCount; count++) {
@@ -221,7 +280,7 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
 
     @Override
     public boolean flushOne(long primaryKey) {
-        CacheCallable<Boolean> callable = new CacheCallable<>(getScheduleName(), () -> lockAndFlushPrimaryCache(Collections.singletonList(primaryKey), "flushOne.1"), null);
+        CacheCallable<Boolean> callable = new CacheCallable<>(getScheduleName() + ".flushOne." + primaryKey, () -> lockAndFlushPrimaryCache(Collections.singletonList(primaryKey), "flushOne.1"), null);
         boolean isSuccess = false;
         int tryCount = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getInt("flush.tryOneCount");
         long flushTimeOut = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getDuration("flush.timeOut", TimeUnit.MILLISECONDS);
@@ -246,6 +305,42 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
         return isSuccess;
     }
 
+    private void dumpPrimaryCache(long currentTime){
+        String string = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getString("flush.logPath");
+        File parent = new File(string + "_" + currentTime);
+        if (!parent.exists()){
+            boolean success = parent.mkdir();
+            if (!success){
+                logger.error("mkdir error:{}", string);
+            }
+        }
+        ICacheUniqueId cacheDaoUnique = getCacheUniqueId();
+        ICacheKeyValueBuilder<K> keyValueBuilder = getKeyValueBuilder();
+        Collection<PrimaryDelayCache<K, V>> primaryDelayCaches = primaryCacheMap.values();
+        for (PrimaryDelayCache<K, V> delayCache : primaryDelayCaches) {
+            StringBuilder builder = new StringBuilder();
+            long primaryKey = delayCache.getPrimaryKey();
+            builder.append("primaryKey:").append(primaryKey).append("\n");
+            Collection<KeyDataValue<K, V>> dataValues = delayCache.getAll();
+            for (KeyDataValue<K, V> dataValue : dataValues) {
+                String secondaryKeyString = keyValueBuilder.toSecondaryKeyString(dataValue.getKey());
+                builder.append("key:").append(secondaryKeyString).append("\t")
+                        .append("command:").append(dataValue.getCacheCommand().name()).append("\t")
+                        .append("data:").append(getConverter().convert2Cache(dataValue.getDataValue())).append("\n");
+            }
+            try {
+                String filename = String.format("%s.cache", cacheDaoUnique.getRedisKeyString(primaryKey));
+                FileWriter writer = new FileWriter(parent.getAbsolutePath() + "/" + filename);
+                writer.append(builder.toString());
+                writer.flush();
+                writer.close();
+            }
+            catch (IOException e) {
+                logger.error("{}", builder.toString(), e);
+            }
+        }
+    }
+
     protected String getScheduleName() {
         return getCacheUniqueId().getName();
     }
@@ -262,25 +357,171 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
 
     protected abstract Map<Long, PrimaryDelayCache<K, V>> executeWritePrimaryCache(Map<Long, PrimaryDelayCache<K, V>> primaryCacheMap);
 
-    private void onScheduleAll() {
-        if (primaryCacheMap.isEmpty()) {
+    private PrimaryDelayCache<K, V> newPrimaryCache(long primaryKey){
+        return newPrimaryCache(primaryKey, 0);
+    }
+
+    private PrimaryDelayCache<K, V> newPrimaryCache(long primaryKey, long duration){
+        PrimaryDelayCache<K, V> primaryCache = new PrimaryDelayCache<>(primaryKey, duration);
+        if (writeAheadLog != null){
+            primaryCache.setWalSegmentId(writeAheadLog.acquire());
+        }
+        flushLane(primaryKey).timingWheel.schedule(primaryCache, primaryCache.getExpiredTime());
+        return primaryCache;
+    }
+
+    /**
+     * 回滚或者回放的数据还在更早的分段中，改为持有更早的分段
+     * @param primaryCache
+     * @param walSegmentId
+     */
+    private void retainWalSegment(PrimaryDelayCache<K, V> primaryCache, long walSegmentId){
+        if (writeAheadLog == null || walSegmentId < 0 || walSegmentId >= primaryCache.getWalSegmentId()){
             return;
         }
-        long currentTime = System.currentTimeMillis();
-        int maximumCount = Math.min(50, EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getInt("flush.maximumCount"));
-        List<Long> removePrimaryKeyList = new ArrayList<>();
-        for (Map.Entry<Long, PrimaryDelayCache<K, V>> entry : primaryCacheMap.entrySet()) {
-            if (entry.getValue().isEmpty()) {
-                continue;
+        long oldSegmentId = primaryCache.getWalSegmentId();
+        primaryCache.setWalSegmentId(writeAheadLog.acquire(walSegmentId));
+        writeAheadLog.release(oldSegmentId);
+    }
+
+    private void releaseWalSegment(PrimaryDelayCache<K, V> primaryCache){
+        if (writeAheadLog == null || primaryCache.getWalSegmentId() < 0){
+            return;
+        }
+        writeAheadLog.release(primaryCache.getWalSegmentId());
+        primaryCache.setWalSegmentId(-1);
+    }
+
+    /**
+     * 编码数据快照（不再复制对象）并且记录变化的字段，之后的修改重新开始标记
+     * @param value
+     * @return
+     */
+    private KeyDataValue<K, V> createKeyDataValue(V value){
+        byte[] snapshot = cacheSource.encodeSnapshot(value);
+        if (!EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getBoolean("flush.dirtyField")){
+            return KeyDataValue.createCache(value.secondaryKey(), snapshot, cacheSource);
+        }
+        long dirtyBits = value.getBitIndexBits() & DataBitIndex.FieldIndexBits;
+        value.clearCacheBitIndex();
+        return KeyDataValue.createCache(value.secondaryKey(), snapshot, cacheSource, dirtyBits);
+    }
+
+    /**
+     * 写入失败的时候返回false，调用方不修改缓存，写入操作返回失败
+     * @param primaryKey
+     * @param keyDataValue
+     * @return
+     */
+    private boolean appendWriteAheadLog(long primaryKey, KeyDataValue<K, V> keyDataValue){
+        if (writeAheadLog == null){
+            return true;
+        }
+        try {
+            byte[] body;
+            if (keyDataValue.isDeleted()){
+                //删除的数据只记录主键，回放的时候通过主键构造出secondaryKey
+                Map<String, Object> cacheValue = new HashMap<>();
+                for (CacheKeyValue keyValue : getKeyValueBuilder().createCombineUniqueKeyValue(primaryKey, keyDataValue.getKey())) {
+                    cacheValue.put(keyValue.getKey(), keyValue.getValue());
+                }
+                body = WriteAheadLogUtil.encode(cacheValue);
+            }
+            else {
+                body = keyDataValue.getSnapshot();   //快照就是BSON，不需要再编码
             }
-            if (removePrimaryKeyList.size() >= maximumCount){
-                break;
+            byte command = (byte)keyDataValue.getCacheCommand().ordinal();
+            writeAheadLog.append(primaryKey, command, body);
+            return true;
+        }
+        catch (Throwable t){
+            logger.error("{} primaryKey:{} append wal error.", getAClass().getName(), primaryKey, t);
+            return false;
+        }
+    }
+
+    private void replayWriteAheadLog(){
+        writeAheadLog.replay((segmentId, primaryKey, command, body) -> {
+            V value = cacheSource.decodeSnapshot(body);
+            PrimaryDelayCache<K, V> primaryCache = primaryCacheMap.computeIfAbsent(primaryKey, this::newPrimaryCache);
+            retainWalSegment(primaryCache, segmentId);
+            if (CacheCommand.values()[command] == CacheCommand.DELETE){
+                primaryCache.deleteCacheValue(value.secondaryKey());
             }
             else {
-                removePrimaryKeyList.add(entry.getKey());
+                primaryCache.add(KeyDataValue.createCache(value.secondaryKey(), body, cacheSource));
+            }
+        });
+    }
+
+    private FlushLane flushLane(long primaryKey){
+        if (flushLanes.size() == 1){
+            return flushLanes.get(0);
+        }
+        return flushLanes.get(Math.floorMod(Long.hashCode(primaryKey * 0x9E3779B97F4A7C15L), flushLanes.size()));
+    }
+
+    /**
+     * 回写通道：每个通道有自己的时间轮和调度任务，只在自己的调度线程中访问
+     */
+    private class FlushLane {
+        /**
+         * 按照PrimaryDelayCache.expiredTime注册回写时间点
+         */
+        private final CacheTimingWheel<PrimaryDelayCache<K, V>> timingWheel;
+        /**
+         * 已经到期等待回写的数据，按照产生时间排序
+         */
+        private final PriorityQueue<PrimaryDelayCache<K, V>> expiredQueue;
+
+        private FlushLane(long currentTime) {
+            this.timingWheel = new CacheTimingWheel<>(SCHEDULE_PERIOD, currentTime);
+            this.expiredQueue = new PriorityQueue<>(Comparator.comparingLong(PrimaryDelayCache::getCreateTime));
+        }
+
+        private void onSchedule() {
+            long currentTime = System.currentTimeMillis();
+            timingWheel.advance(currentTime, expiredQueue::add);
+            if (expiredQueue.isEmpty()) {
+                return;
+            }
+            IEvnConfig flushConfig = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getConfig("flush");
+            int maximumCount = Math.max(1, flushConfig.getInt("maximumCount"));
+            int flushCount = maximumCount;
+            long staleTime = Long.MIN_VALUE;
+            if (flushConfig.hasPath("maxStaleness")){
+                long maxStaleness = flushConfig.getDuration("maxStaleness", TimeUnit.MILLISECONDS);
+                long expiredDuration = flushConfig.getDuration("expiredDuration", TimeUnit.MILLISECONDS);
+                //积压的数据需要在 maxStaleness - expiredDuration 内回写完
+                long drainDuration = Math.max(SCHEDULE_PERIOD, maxStaleness - expiredDuration);
+                flushCount = (int)Math.max(maximumCount, expiredQueue.size() * SCHEDULE_PERIOD / drainDuration);
+                staleTime = currentTime - maxStaleness;
+            }
+            List<PrimaryDelayCache<K, V>> primaryCacheList = new ArrayList<>();
+            while (!expiredQueue.isEmpty()){
+                PrimaryDelayCache<K, V> primaryCache = expiredQueue.peek();
+                if (primaryCacheList.size() >= flushCount && primaryCache.getCreateTime() > staleTime){
+                    break;
+                }
+                expiredQueue.poll();
+                if (primaryCacheMap.get(primaryCache.getPrimaryKey()) != primaryCache){
+                    continue;   //已经回写过了
+                }
+                primaryCacheList.add(primaryCache);
+            }
+            //每次加锁的数量不超过maximumCount
+            for (int index = 0; index < primaryCacheList.size(); index += maximumCount) {
+                List<PrimaryDelayCache<K, V>> subList = primaryCacheList.subList(index, Math.min(index + maximumCount, primaryCacheList.size()));
+                List<Long> removePrimaryKeyList = subList.stream().map(PrimaryDelayCache::getPrimaryKey).collect(Collectors.toList());
+                lockAndFlushPrimaryCache(removePrimaryKeyList, "onScheduleAll");
+            }
+            for (PrimaryDelayCache<K, V> primaryCache : primaryCacheList) {
+                if (primaryCacheMap.get(primaryCache.getPrimaryKey()) == primaryCache){
+                    //加锁失败，还在等待回写
+                    timingWheel.schedule(primaryCache, currentTime + RETRY_DURATION);
+                }
             }
         }
-        lockAndFlushPrimaryCache(removePrimaryKeyList, "onScheduleAll");
     }
 
     private boolean lockAndFlushPrimaryCache(Collection<Long> removePrimaryKeyList, String message){
@@ -296,6 +537,7 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
                     continue;
                 }
                 if (primaryCache.isEmpty()) {
+                    releaseWalSegment(primaryCache);
                     continue;
                 }
                 primaryCacheMap0.put(removePrimaryKey, primaryCache);
@@ -309,8 +551,18 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
         long duration = RandomUtil.nextLong(1000, 5000);
         for (Map.Entry<Long, PrimaryDelayCache<K, V>> entry : failurePrimaryCacheMap.entrySet()) {
             long primaryKey = entry.getValue().getPrimaryKey();
-            PrimaryDelayCache<K, V> newPrimaryCache = this.primaryCacheMap.computeIfAbsent(primaryKey, key -> new PrimaryDelayCache<>(key, duration));
+            PrimaryDelayCache<K, V> flushCache = primaryCacheMap.get(primaryKey);
+            PrimaryDelayCache<K, V> newPrimaryCache = this.primaryCacheMap.computeIfAbsent(primaryKey, key -> {
+                PrimaryDelayCache<K, V> primaryCache = newPrimaryCache(key, duration);
+                if (flushCache != null){
+                    primaryCache.updateCreateTime(flushCache.getCreateTime());
+                }
+                return primaryCache;
+            });
             newPrimaryCache.rollbackAll(entry.getValue().getAll());
+            if (flushCache != null){
+                retainWalSegment(newPrimaryCache, flushCache.getWalSegmentId());
+            }
         }
         for (Map.Entry<Long, PrimaryDelayCache<K, V>> entry : primaryCacheMap.entrySet()) {
             PrimaryDelayCache<K, V> primaryCache = entry.getValue();
@@ -332,7 +584,10 @@ public abstract class CacheDelaySource<K, V extends IData<K>> implements ICacheD
                 }
             }
         }
-
+        //回滚的数据已经持有了分段，回写过的数据可以释放了
+        for (PrimaryDelayCache<K, V> primaryCache : primaryCacheMap.values()) {
+            releaseWalSegment(primaryCache);
+        }
         return failurePrimaryCacheMap.isEmpty();
     }
 
@@ -29,9 +29,14 @@ public abstract class CacheSource<K, V extends IData<K>> implements ICacheSource
         this.converter = new ClassConverter<>(aClass, cacheUniqueId, getCacheType());
     }
 
+    @Override
+    public LockKey getLockKey() {
+        return lockKey;
+    }
+
     @Override
     public LockKey getLockKey(long primaryKey) {
-        return lockKey.createLockKey(String.valueOf(primaryKey));
+        return lockKey.createLockKey(primaryKey);
     }
 
     @SuppressWarnings("unchecked")
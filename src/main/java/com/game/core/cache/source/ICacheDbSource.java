@@ -4,7 +4,17 @@ import com.game.core.cache.data.IData;
 import com.game.core.cache.source.executor.ICacheSource;
 import com.game.core.cache.source.interact.CacheDBCollection;
 
-public interface ICacheDbSource<K, V extends IData<K>> extends ICacheSource<K, V> {
+import java.util.Collection;
+import java.util.Map;
+
+public interface ICacheDbSource<K, V extends IData<K>> extends ICacheSource<K, V>, IDataSnapshotCodec<V> {
 
     CacheDBCollection getPrimaryCollection(long primaryKey);
+
+    /**
+     * 批量查询多个主键
+     * @param primaryKeys
+     * @return
+     */
+    Map<Long, CacheDBCollection> getPrimaryCollections(Collection<Long> primaryKeys);
 }
@@ -7,6 +7,11 @@ import java.util.function.Consumer;
 
 public interface ICacheDelaySource<K, V extends IData<K>> extends ICacheSource<K, V>{
 
+    /**
+     * 回放预写日志并开始定时回写，创建之后调用一次
+     */
+    void start();
+
     boolean flushOne(long primaryKey);
 
     ICacheSource<K, V> getCacheSource();
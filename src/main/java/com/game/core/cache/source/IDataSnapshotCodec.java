@@ -0,0 +1,21 @@
+package com.game.core.cache.source;
+
+/**
+ * 回写队列中保存的数据快照：写入时编码一次，之后不可变，回写和预写日志直接使用编码后的数据
+ * @param <V>
+ */
+public interface IDataSnapshotCodec<V> {
+
+    /**
+     * @param value
+     * @return BSON格式的数据
+     */
+    byte[] encodeSnapshot(V value);
+
+    /**
+     * 每次返回新的对象
+     * @param snapshot
+     * @return
+     */
+    V decodeSnapshot(byte[] snapshot);
+}
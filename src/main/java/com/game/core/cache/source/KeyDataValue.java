@@ -6,26 +6,61 @@ public class KeyDataValue<K, V extends IData<K>> {
 
     private K key;
     private CacheCommand cacheCommand;
-    private V dataValue;
+    /**
+     * 写入时编码的数据快照，删除的时候为null
+     */
+    private final byte[] snapshot;
+    private final IDataSnapshotCodec<V> snapshotCodec;
+    /**
+     * 变化的字段，0表示全部字段
+     */
+    private long dirtyBits;
 
-    private KeyDataValue(K key, CacheCommand cacheCommand, V dataValue) {
+    private KeyDataValue(K key, CacheCommand cacheCommand, byte[] snapshot, IDataSnapshotCodec<V> snapshotCodec, long dirtyBits) {
         this.key = key;
         this.cacheCommand = cacheCommand;
-        this.dataValue = dataValue;
+        this.snapshot = snapshot;
+        this.snapshotCodec = snapshotCodec;
+        this.dirtyBits = dirtyBits;
     }
 
     public K getKey() {
         return key;
     }
 
+    /**
+     * 从快照解码，每次返回新的对象
+     * @return
+     */
     public V getDataValue() {
-        return dataValue;
+        return snapshot == null ? null : snapshotCodec.decodeSnapshot(snapshot);
+    }
+
+    public byte[] getSnapshot() {
+        return snapshot;
     }
 
     public CacheCommand getCacheCommand() {
         return cacheCommand;
     }
 
+    public long getDirtyBits() {
+        return dirtyBits;
+    }
+
+    /**
+     * 同一条数据多次修改，合并变化的字段
+     * @param oldKeyDataValue 之前没有回写的
+     */
+    public void mergeDirtyBits(KeyDataValue<K, V> oldKeyDataValue){
+        if (oldKeyDataValue.isDeleted() || oldKeyDataValue.dirtyBits == 0 || dirtyBits == 0){
+            dirtyBits = 0;
+        }
+        else {
+            dirtyBits = dirtyBits | oldKeyDataValue.dirtyBits;
+        }
+    }
+
     public void updateCommand(CacheCommand cacheCommand){
         this.cacheCommand = cacheCommand;
     }
@@ -38,11 +73,15 @@ public class KeyDataValue<K, V extends IData<K>> {
         return cacheCommand.equals(CacheCommand.DELETE);
     }
 
-    public static <K, V extends IData<K>> KeyDataValue<K, V> createCache(K key, V dataValue){
-        return new KeyDataValue<>(key, CacheCommand.UPSERT, dataValue);
+    public static <K, V extends IData<K>> KeyDataValue<K, V> createCache(K key, byte[] snapshot, IDataSnapshotCodec<V> snapshotCodec){
+        return new KeyDataValue<>(key, CacheCommand.UPSERT, snapshot, snapshotCodec, 0);
+    }
+
+    public static <K, V extends IData<K>> KeyDataValue<K, V> createCache(K key, byte[] snapshot, IDataSnapshotCodec<V> snapshotCodec, long dirtyBits){
+        return new KeyDataValue<>(key, CacheCommand.UPSERT, snapshot, snapshotCodec, dirtyBits);
     }
 
     public static <K, V extends IData<K>> KeyDataValue<K, V> createDelete(K key){
-        return new KeyDataValue<>(key, CacheCommand.DELETE, null);
+        return new KeyDataValue<>(key, CacheCommand.DELETE, null, null, 0);
     }
 }
@@ -13,7 +13,15 @@ import java.util.concurrent.TimeUnit;
 public class PrimaryDelayCache<K, V extends IData<K>>{
 
     private final long primaryKey;
+    /**
+     * 最早一条没有回写的数据产生的时间，回写按照这个时间排序
+     */
+    private volatile long createTime;
     private volatile long expiredTime;
+    /**
+     * 持有的预写日志分段，没有开启预写日志时为-1
+     */
+    private volatile long walSegmentId;
     private final Map<K, KeyDataValue<K, V>> keyDataValuesMap;
 
     public PrimaryDelayCache(long primaryKey, long duration) {
@@ -21,8 +29,10 @@ public class PrimaryDelayCache<K, V extends IData<K>>{
         if (duration == 0){
             duration = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getDuration("flush.expiredDuration", TimeUnit.MILLISECONDS);
         }
-        this.expiredTime = System.currentTimeMillis() + duration;
+        this.createTime = System.currentTimeMillis();
+        this.expiredTime = createTime + duration;
         this.keyDataValuesMap = new ConcurrentHashMap<>();
+        this.walSegmentId = -1;
     }
 
     public PrimaryDelayCache(long primaryKey) {
@@ -33,6 +43,20 @@ public class PrimaryDelayCache<K, V extends IData<K>>{
         return primaryKey;
     }
 
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    /**
+     * 回滚的数据保留原来的时间，避免一直回写失败的数据排在后面
+     * @param createTime
+     */
+    public void updateCreateTime(long createTime) {
+        if (createTime < this.createTime){
+            this.createTime = createTime;
+        }
+    }
+
     public long getExpiredTime() {
         return expiredTime;
     }
@@ -41,6 +65,14 @@ public class PrimaryDelayCache<K, V extends IData<K>>{
         this.expiredTime = expiredTime;
     }
 
+    public long getWalSegmentId() {
+        return walSegmentId;
+    }
+
+    public void setWalSegmentId(long walSegmentId) {
+        this.walSegmentId = walSegmentId;
+    }
+
     public boolean isEmpty(){
         return keyDataValuesMap.isEmpty();
     }
@@ -59,20 +91,20 @@ public class PrimaryDelayCache<K, V extends IData<K>>{
 
     /**
      * @param secondaryKey
-     * @return
+     * @return 是否覆盖了没有回写的修改
      */
-    public V deleteCacheValue(K secondaryKey){
+    public boolean deleteCacheValue(K secondaryKey){
         KeyDataValue<K, V> oldKeyDataValue = keyDataValuesMap.remove(secondaryKey);
         if (oldKeyDataValue == null){
             keyDataValuesMap.put(secondaryKey, KeyDataValue.createDelete(secondaryKey));
-            return null;
+            return false;
         }
         if (oldKeyDataValue.isDeleted()) {
-            return null;
+            return false;
         }
         if (oldKeyDataValue.isUpsert()){
             keyDataValuesMap.put(secondaryKey, KeyDataValue.createDelete(secondaryKey));
-            return oldKeyDataValue.getDataValue();
+            return true;
         }
         throw new CacheException(oldKeyDataValue.getCacheCommand().name());
     }
@@ -81,7 +113,10 @@ public class PrimaryDelayCache<K, V extends IData<K>>{
      * @param keyDataValue
      */
     public void add(KeyDataValue<K, V> keyDataValue){
-        keyDataValuesMap.put(keyDataValue.getKey(), keyDataValue);
+        KeyDataValue<K, V> oldKeyDataValue = keyDataValuesMap.put(keyDataValue.getKey(), keyDataValue);
+        if (oldKeyDataValue != null && keyDataValue.isUpsert()){
+            keyDataValue.mergeDirtyBits(oldKeyDataValue);
+        }
     }
 
     public KeyDataValue<K, V> get(K secondaryKey){
@@ -103,7 +138,13 @@ public class PrimaryDelayCache<K, V extends IData<K>>{
      */
     public void rollbackAll(Collection<KeyDataValue<K, V>> keyDataValues){
         for (KeyDataValue<K, V> keyDataValue : keyDataValues) {
-            keyDataValuesMap.putIfAbsent( keyDataValue.getKey(), keyDataValue);
+            keyDataValuesMap.merge(keyDataValue.getKey(), keyDataValue, (newKeyDataValue, oldKeyDataValue) -> {
+                //回滚的修改没有写入成功，新的数据需要把它也带上
+                if (newKeyDataValue.isUpsert()){
+                    newKeyDataValue.mergeDirtyBits(oldKeyDataValue);
+                }
+                return newKeyDataValue;
+            });
         }
     }
 
@@ -20,8 +20,10 @@ import com.game.core.cache.source.redis.ICacheRedisSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +62,11 @@ public class CacheComposeSource<K, V extends IData<K>> implements ICacheComposeS
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public LockKey getLockKey() {
+        return redisSource.getLockKey();
+    }
+
     @Override
     public LockKey getLockKey(long primaryKey) {
         return redisSource.getLockKey(primaryKey);
@@ -106,6 +113,55 @@ public class CacheComposeSource<K, V extends IData<K>> implements ICacheComposeS
         return dataCollection;
     }
 
+    /**
+     * 先一次管道读取redis，过期或者没有数据的主键再一次查询数据库
+     * @param primaryKeys
+     * @return
+     */
+    @Override
+    public Map<Long, DataCollection<K, V>> getCollections(Collection<Long> primaryKeys) {
+        long currentTime = System.currentTimeMillis();
+        Map<Long, DataCollection<K, V>> collectionMap = new HashMap<>(primaryKeys.size());
+        List<Long> redisKeyList = new ArrayList<>();
+        List<Long> dbKeyList = new ArrayList<>();
+        for (long primaryKey : primaryKeys) {
+            CacheInformation information = cacheInformationMap.get(primaryKey);
+            if (information != null && information.isExpired(currentTime)){
+                dbKeyList.add(primaryKey);
+            }
+            else {
+                redisKeyList.add(primaryKey);
+            }
+        }
+        if (!redisKeyList.isEmpty()){
+            Map<Long, DataCollection<K, V>> redisCollectionMap = redisSource.getCollections(redisKeyList);
+            for (long primaryKey : redisKeyList) {
+                DataCollection<K, V> dataCollection = redisCollectionMap.get(primaryKey);
+                if (dataCollection == null || dataCollection.isExpired(currentTime)){
+                    dbKeyList.add(primaryKey);
+                    continue;
+                }
+                List<V> changeDataList = dataCollection.getDataList().stream().filter(data -> data.hasBitIndex(DataBitIndex.RedisChangeIndex)).collect(Collectors.toList());
+                onReplaceRedisBatchSuccess(primaryKey, changeDataList);
+                collectionMap.put(primaryKey, dataCollection);
+            }
+        }
+        if (!dbKeyList.isEmpty()){
+            Map<Long, DataCollection<K, V>> dbCollectionMap = dbSource.getCollections(dbKeyList);
+            for (Map.Entry<Long, DataCollection<K, V>> entry : dbCollectionMap.entrySet()) {
+                DataCollection<K, V> dataCollection = entry.getValue();
+                CacheInformation cacheInformation = dataCollection.getCacheInformation();
+                cacheInformation.updateCurrentTime(currentTime);
+                onReplaceDbBatchSuccess(entry.getKey(), dataCollection.getDataList(), cacheInformation);
+                collectionMap.put(entry.getKey(), dataCollection);
+            }
+        }
+        for (Map.Entry<Long, DataCollection<K, V>> entry : collectionMap.entrySet()) {
+            cacheInformationMap.put(entry.getKey(), entry.getValue().getCacheInformation());
+        }
+        return collectionMap;
+    }
+
     @Override
     public boolean replaceOne(long primaryKey, V value) {
         beforeReplaceBatch(Collections.singleton(value));
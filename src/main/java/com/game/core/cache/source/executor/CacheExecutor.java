@@ -1,51 +1,183 @@
 package com.game.core.cache.source.executor;
 
+import com.game.common.thread.PoolThreadFactory;
+import com.game.common.thread.ThreadUncaughtExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
 /**
- * 线程池需要优化：
- * 确保一个任务类型：name 同时只有一个线程在处理。
- * 使用单线程模式处理，存在空闲线程的时候，共享任务堵类型会堵塞name任务。
+ * 同一个任务类型：name 同时只有一个线程在处理，后面的任务排队；不同的name在线程池中并行
+ * 定时器只负责到期之后把任务放进对应name的队列，执行由工作线程（work-stealing）完成
+ * 周期任务上一次还没有执行完的时候跳过本次，不会在队列中堆积
  */
 public class CacheExecutor implements ICacheExecutor{
 
-    private final ScheduledExecutorService executorService;
+    private static final Logger logger = LoggerFactory.getLogger(CacheExecutor.class);
+
+    /**
+     * 每个name连续执行的任务数量，超过之后让出线程
+     */
+    private static final int SERIAL_BATCH_COUNT = 16;
+
+    private final ForkJoinPool workerPool;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * 存在表示有线程正在处理（或者已经提交）这个name的任务
+     */
+    private final ConcurrentHashMap<String, SerialQueue> name2Queues;
 
     public CacheExecutor(int poolSize) {
-        this.executorService = Executors.newScheduledThreadPool(poolSize);
+        this.workerPool = new ForkJoinPool(poolSize, new WorkerThreadFactory("cache-executor"), ThreadUncaughtExceptionHandler.INSTANCE, true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new PoolThreadFactory("cache-scheduler"));
+        this.name2Queues = new ConcurrentHashMap<>();
     }
 
     @Override
     public <T> ICacheFuture<T> submit(CacheCallable<T> callable) {
-        Future<T> future = executorService.submit(callable);
+        FutureTask<T> future = new FutureTask<>(callable);
+        execute(callable.getName(), future);
         return new CacheFuture<>(future);
     }
 
     @Override
     public <V> void schedule(CacheCallable<V> callable, long delay, TimeUnit unit) {
-        executorService.schedule(callable, delay, unit);
+        scheduler.schedule(() -> execute(callable.getName(), new FutureTask<>(callable)), delay, unit);
     }
 
     @Override
     public void scheduleAtFixedRate(CacheRunnable command, long initialDelay, long period, TimeUnit unit) {
-        executorService.scheduleAtFixedRate(command, initialDelay, period, unit);
+        AtomicBoolean pending = new AtomicBoolean(false);
+        Runnable runnable = () -> {
+            try {
+                command.run();
+            }
+            finally {
+                pending.set(false);
+            }
+        };
+        scheduler.scheduleAtFixedRate(() -> {
+            if (pending.compareAndSet(false, true)){
+                try {
+                    execute(command.getName(), runnable);
+                }
+                catch (RejectedExecutionException e){
+                    pending.set(false);
+                    throw e;
+                }
+            }
+        }, initialDelay, period, unit);
     }
 
     @Override
     public void shutdown() {
-        executorService.shutdown();
+        scheduler.shutdown();
+        workerPool.shutdown();
+    }
+
+    private void execute(String name, Runnable task){
+        SerialQueue serialQueue = name2Queues.compute(name, (key, current) -> {
+            SerialQueue queue = current == null ? new SerialQueue(key) : current;
+            queue.tasks.add(task);
+            return queue;
+        });
+        if (serialQueue.started.compareAndSet(false, true)){
+            try {
+                workerPool.execute(serialQueue);
+            }
+            catch (RejectedExecutionException e){
+                //已经关闭，队列不会再执行，删除之后不影响同名的后续提交
+                name2Queues.remove(name, serialQueue);
+                serialQueue.started.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private final class SerialQueue implements Runnable {
+
+        private final String name;
+        private final ConcurrentLinkedQueue<Runnable> tasks;
+        private final AtomicBoolean started;
+        /**
+         * 移除执行完的任务，队列空了之后从name2Queues删除
+         */
+        private final BiFunction<String, SerialQueue, SerialQueue> removeFunction;
+
+        private SerialQueue(String name) {
+            this.name = name;
+            this.tasks = new ConcurrentLinkedQueue<>();
+            this.started = new AtomicBoolean(false);
+            this.removeFunction = (key, current) -> {
+                tasks.poll();
+                return tasks.isEmpty() ? null : current;
+            };
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                for (int count = 0; count < SERIAL_BATCH_COUNT; count++) {
+                    Runnable task = tasks.peek();
+                    try {
+                        task.run();
+                    }
+                    catch (Throwable t){
+                        logger.error("name:{} run error.", name, t);
+                    }
+                    if (name2Queues.compute(name, removeFunction) == null){
+                        return;
+                    }
+                }
+                try {
+                    workerPool.execute(this);
+                    return;
+                }
+                catch (RejectedExecutionException e) {
+                    //已经关闭，当前线程继续执行剩下的任务
+                }
+            }
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber;
+
+        private WorkerThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+            this.threadNumber = new AtomicInteger(0);
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(namePrefix + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(false);        //和原来的线程池一致，关闭之前不退出
+            return thread;
+        }
     }
 
     private static class CacheFuture<T> implements ICacheFuture<T>{
 
-        private volatile Future<T> future;
+        private volatile FutureTask<T> future;
 
-        public CacheFuture(Future<T> future) {
+        public CacheFuture(FutureTask<T> future) {
             this.future = future;
         }
 
@@ -0,0 +1,141 @@
+package com.game.core.cache.source.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮：每层64个槽，第n层的一个槽覆盖64^n个tick
+ * schedule 可以多线程调用（先进入待插入队列），advance 由定时任务单线程推进，
+ * 每次推进只处理到期的槽，不需要遍历所有数据
+ * 不支持取消，到期之后由调用方自己判断是否还有效
+ * @param <T>
+ */
+public class CacheTimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVEL_COUNT = 4;
+    private static final long MAXIMUM_DELTA_TICK = (1L << (WHEEL_BITS * LEVEL_COUNT)) - 1;
+
+    private final long tickDuration;
+    private final long startTime;
+    private final List<Entry<T>>[][] wheels;
+    private final ConcurrentLinkedQueue<Entry<T>> pendingQueue;
+    /**
+     * 下一个需要处理的tick
+     */
+    private long currentTick;
+
+    public CacheTimingWheel(long tickDuration, long startTime) {
+        if (tickDuration <= 0){
+            throw new IllegalArgumentException(String.valueOf(tickDuration));
+        }
+        this.tickDuration = tickDuration;
+        this.startTime = startTime;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Entry<T>>[][] wheels = (List<Entry<T>>[][]) new List[LEVEL_COUNT][WHEEL_SIZE];
+        this.wheels = wheels;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new ArrayList<>();
+            }
+        }
+        this.pendingQueue = new ConcurrentLinkedQueue<>();
+        this.currentTick = 0;
+    }
+
+    /**
+     * @param value
+     * @param deadline 到期的时间点（毫秒）
+     */
+    public void schedule(T value, long deadline){
+        long deadlineTick = Math.max(0, (deadline - startTime + tickDuration - 1) / tickDuration);
+        pendingQueue.add(new Entry<>(value, deadlineTick));
+    }
+
+    /**
+     * 推进到currentTime，到期的数据按照到期顺序回调
+     * @param currentTime
+     * @param consumer
+     */
+    public synchronized void advance(long currentTime, Consumer<T> consumer){
+        Entry<T> pending;
+        while ((pending = pendingQueue.poll()) != null){
+            insert(pending);
+        }
+        long targetTick = (currentTime - startTime) / tickDuration;
+        List<T> expiredList = new ArrayList<>();
+        while (currentTick <= targetTick){
+            long tick = currentTick;
+            if (tick > 0){
+                cascade(tick);
+            }
+            List<Entry<T>> slot = wheels[0][(int)(tick & WHEEL_MASK)];
+            if (!slot.isEmpty()){
+                List<Entry<T>> entryList = new ArrayList<>(slot);
+                slot.clear();
+                for (Entry<T> entry : entryList) {
+                    if (entry.deadlineTick <= tick){
+                        expiredList.add(entry.value);
+                    }
+                    else {
+                        insert(entry);
+                    }
+                }
+            }
+            currentTick = tick + 1;
+        }
+        for (T value : expiredList) {
+            consumer.accept(value);
+        }
+    }
+
+    /**
+     * 低层转完一圈之后，把上一层对应槽的数据重新分配到低层
+     * @param tick
+     */
+    private void cascade(long tick){
+        for (int level = 1; level < LEVEL_COUNT; level++) {
+            if (((tick >> (WHEEL_BITS * level - WHEEL_BITS)) & WHEEL_MASK) != 0){
+                return;
+            }
+            List<Entry<T>> slot = wheels[level][(int)((tick >> (WHEEL_BITS * level)) & WHEEL_MASK)];
+            if (slot.isEmpty()){
+                continue;
+            }
+            List<Entry<T>> entryList = new ArrayList<>(slot);
+            slot.clear();
+            for (Entry<T> entry : entryList) {
+                insert(entry);
+            }
+        }
+    }
+
+    private void insert(Entry<T> entry){
+        long deadlineTick = Math.max(entry.deadlineTick, currentTick);
+        long deltaTick = Math.min(deadlineTick - currentTick, MAXIMUM_DELTA_TICK);
+        if (deltaTick != deadlineTick - currentTick){
+            //超出时间轮范围的先放在最高层，转到之后再重新分配
+            deadlineTick = currentTick + deltaTick;
+        }
+        int level = 0;
+        while (level < LEVEL_COUNT - 1 && deltaTick >= (1L << (WHEEL_BITS * (level + 1)))){
+            level++;
+        }
+        int slot = (int)((deadlineTick >> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][slot].add(entry);
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long deadlineTick;
+
+        private Entry(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -14,6 +14,8 @@ public interface ICacheSource<K, V extends IData<K>> extends IDataSource<K, V> {
 
     CacheType getCacheType();
 
+    LockKey getLockKey();
+
     LockKey getLockKey(long primaryKey);
 
     Class<V> getAClass();
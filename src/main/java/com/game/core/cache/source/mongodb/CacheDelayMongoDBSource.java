@@ -4,6 +4,7 @@ import com.game.common.arg.Args;
 import com.game.core.cache.CacheKeyValue;
 import com.game.core.cache.CacheType;
 import com.game.core.cache.data.IData;
+import com.game.core.cache.mapper.mongodb.MongoDBClassCodec;
 import com.game.core.cache.source.CacheDelaySource;
 import com.game.core.cache.source.ICacheKeyValueBuilder;
 import com.game.core.cache.source.KeyDataValue;
@@ -14,6 +15,7 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.UpdateOneModel;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,13 +57,14 @@ public class CacheDelayMongoDBSource<K, V extends IData<K>> extends CacheDelaySo
     protected Map<Long, PrimaryDelayCache<K, V>> executeWritePrimaryCache(Map<Long, PrimaryDelayCache<K, V>> pkPrimaryCacheMap) {
 
         List<DeleteOneModel<Document>> deleteOneModelList = new ArrayList<>();
-        List<UpdateOneModel<Document>> updateOneModelList =  new ArrayList<>();
+        List<UpdateOneModel<V>> updateOneModelList =  new ArrayList<>();
 
         List<Args.Two<Long, KeyDataValue<K, V>>> deleteKeyCacheValueList = new ArrayList<>();
         List<Args.Two<Long, KeyDataValue<K, V>>> updateKeyCacheValueList = new ArrayList<>();
 
 
         ICacheKeyValueBuilder<K> keyValueBuilder = getKeyValueBuilder();
+        MongoDBClassCodec<V> classCodec = getMongoDBSource().getClassCodec();
         for (Map.Entry<Long, PrimaryDelayCache<K, V>> entry : pkPrimaryCacheMap.entrySet()) {
             for (KeyDataValue<K, V> keyDataValue : entry.getValue().getAll()) {
                 if (keyDataValue.isDeleted()) {
@@ -70,9 +73,9 @@ public class CacheDelayMongoDBSource<K, V extends IData<K>> extends CacheDelaySo
                     deleteKeyCacheValueList.add(Args.create(entry.getKey(), keyDataValue));
                 }
                 else {
-                    List<CacheKeyValue> entryList = keyValueBuilder.createCombineUniqueKeyValue(entry.getKey(), keyDataValue.getDataValue().secondaryKey());
-                    Map<String, Object> cacheValue = getConverter().convert2Cache(keyDataValue.getDataValue());
-                    updateOneModelList.add(CacheMongoDBUtil.createUpdateOneModel(entryList, cacheValue.entrySet()));
+                    List<CacheKeyValue> entryList = keyValueBuilder.createCombineUniqueKeyValue(entry.getKey(), keyDataValue.getKey());
+                    Bson update = classCodec.createSetUpdate(keyDataValue.getSnapshot(), keyDataValue.getDirtyBits());
+                    updateOneModelList.add(CacheMongoDBUtil.createUpdateOneModel(entryList, update));
                     updateKeyCacheValueList.add(Args.create(entry.getKey(), keyDataValue));
                 }
             }
@@ -105,11 +108,11 @@ public class CacheDelayMongoDBSource<K, V extends IData<K>> extends CacheDelaySo
         }
     }
 
-    private boolean updateDB(List<UpdateOneModel<Document>> modelList){
+    private boolean updateDB(List<UpdateOneModel<V>> modelList){
         if (modelList.isEmpty()){
             return true;
         }
-        MongoCollection<Document> collection =  getMongoDBSource().getCollection();
+        MongoCollection<V> collection =  getMongoDBSource().getEntityCollection();
         BulkWriteResult bulkUpdateResult = collection.bulkWrite(modelList);
         int modifiedCount = bulkUpdateResult.getMatchedCount() + bulkUpdateResult.getUpserts().size();
         if (modifiedCount == modelList.size()){
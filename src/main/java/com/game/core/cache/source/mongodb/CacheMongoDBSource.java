@@ -1,14 +1,18 @@
 package com.game.core.cache.source.mongodb;
 
+import com.game.core.cache.CacheInformation;
 import com.game.core.cache.CacheKeyValue;
 import com.game.core.cache.CacheType;
 import com.game.core.cache.ICacheUniqueId;
+import com.game.core.cache.data.DataCollection;
 import com.game.core.cache.data.IData;
 import com.game.core.cache.key.IKeyValueBuilder;
+import com.game.core.cache.mapper.mongodb.MongoDBClassCodec;
 import com.game.core.cache.source.CacheDbSource;
 import com.game.core.cache.source.ICacheDelaySource;
 import com.game.core.cache.source.executor.ICacheExecutor;
 import com.game.core.cache.source.interact.CacheDBCollection;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.DeleteOneModel;
@@ -16,11 +20,14 @@ import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -29,51 +36,80 @@ public class CacheMongoDBSource<K, V extends IData<K>> extends CacheDbSource<K,
 
     private static final Logger logger = LoggerFactory.getLogger(CacheMongoDBSource.class);
 
+    /**
+     * 实体类直接和BSON转换
+     */
+    private final MongoDBClassCodec<V> classCodec;
+    /**
+     * 只查询实体类的字段，没有开启的时候为null
+     */
+    private final Bson projection;
+
     public CacheMongoDBSource(ICacheUniqueId cacheUniqueId, IKeyValueBuilder<K> secondaryBuilder) {
         super(cacheUniqueId, secondaryBuilder);
+        this.classCodec = new MongoDBClassCodec<>(cacheUniqueId.getAClass(), cacheUniqueId, getCacheType().getConvertMapper(), MongoClientSettings.getDefaultCodecRegistry());
+        this.projection = MongoDBQueryUtil.createProjection(cacheUniqueId);
     }
 
 
     @Override
     public V get(long primaryKey, K secondaryKey) {
         List<CacheKeyValue> entryList = getKeyValueBuilder().createCombineUniqueKeyValue(primaryKey, secondaryKey);
-        Map<String, Object> cacheValue = MongoDBQueryUtil.queryOne(getCollection(), entryList);
-        return cacheValue == null ? null : converter.convert2Value(cacheValue);
+        Document queryDocument = CacheMongoDBUtil.getQueryDocument(entryList);
+        return MongoDBQueryUtil.find(getEntityCollection(), queryDocument, projection).first();
     }
 
     @Override
     public List<V> getAll(long primaryKey) {
         List<CacheKeyValue> entryList = getKeyValueBuilder().createPrimaryKeyValue(primaryKey);
-        Collection<Map<String, Object>> cacheValuesList = MongoDBQueryUtil.queryAll(getCollection(), entryList);
-        return converter.convert2ValueList(cacheValuesList);
+        Document queryDocument = CacheMongoDBUtil.getQueryDocument(entryList);
+        //游标中的数据直接解码成实体类
+        return MongoDBQueryUtil.find(getEntityCollection(), queryDocument, projection).into(new ArrayList<>());
+    }
+
+    @Override
+    public DataCollection<K, V> getCollection(long primaryKey) {
+        return new DataCollection<>(getAll(primaryKey), new CacheInformation());
     }
 
     @Override
     public CacheDBCollection getPrimaryCollection(long primaryKey) {
         List<CacheKeyValue> entryList = getKeyValueBuilder().createPrimaryKeyValue(primaryKey);
-        Collection<Map<String, Object>> mapCollection = MongoDBQueryUtil.queryAll(getCollection(), entryList);
+        Collection<Map<String, Object>> mapCollection = MongoDBQueryUtil.queryAll(getCollection(), entryList, projection);
         return new CacheDBCollection(mapCollection);
     }
 
+    @Override
+    public Map<Long, CacheDBCollection> getPrimaryCollections(Collection<Long> primaryKeys) {
+        if (primaryKeys.isEmpty()){
+            return Collections.emptyMap();
+        }
+        //附加键对所有主键都一样，去掉主键之后加上$in
+        List<CacheKeyValue> entryList = getKeyValueBuilder().createPrimaryKeyValue(primaryKeys.iterator().next());
+        String primaryKeyName = getCacheUniqueId().getPrimaryKey();
+        entryList.removeIf(entry -> entry.getKey().equals(primaryKeyName));
+        Map<Long, Collection<Map<String, Object>>> documentMap = MongoDBQueryUtil.queryAll(getCollection(), primaryKeyName, primaryKeys, entryList, projection);
+        Map<Long, CacheDBCollection> cacheCollectionMap = new HashMap<>(documentMap.size());
+        documentMap.forEach((primaryKey, mapCollection) -> cacheCollectionMap.put(primaryKey, new CacheDBCollection(mapCollection)));
+        return cacheCollectionMap;
+    }
+
     @Override
     public boolean replaceOne(long primaryKey, V value) {
-        Map<String, Object> cacheValue = getConverter().convert2Cache(value);
         List<CacheKeyValue> entryList = getKeyValueBuilder().createCombineUniqueKeyValue(primaryKey, value.secondaryKey());
         Document queryDocument = CacheMongoDBUtil.getQueryDocument(entryList);
-        Document document = CacheMongoDBUtil.toDocument(cacheValue.entrySet());
-        MongoCollection<Document> collection = getCollection();
-        UpdateResult updateOne = collection.updateOne(queryDocument, document, CacheMongoDBUtil.UPDATE_OPTIONS);
+        MongoCollection<V> collection = getEntityCollection();
+        UpdateResult updateOne = collection.updateOne(queryDocument, classCodec.createSetUpdate(value, 0), CacheMongoDBUtil.UPDATE_OPTIONS);
         return updateOne.wasAcknowledged();
     }
 
     @Override
     public boolean replaceBatch(long primaryKey, Collection<V> values) {
-        List<UpdateOneModel<Document>> updateOneModelList = values.stream().map(value -> {
-            Map<String, Object> cacheValue = getConverter().convert2Cache(value);
+        List<UpdateOneModel<V>> updateOneModelList = values.stream().map(value -> {
             List<CacheKeyValue> entryList = getKeyValueBuilder().createCombineUniqueKeyValue(primaryKey, value.secondaryKey());
-            return CacheMongoDBUtil.createUpdateOneModel(entryList, cacheValue.entrySet());
+            return CacheMongoDBUtil.<V>createUpdateOneModel(entryList, classCodec.createSetUpdate(value, 0));
         }).collect(Collectors.toList());
-        MongoCollection<Document> collection = getCollection();
+        MongoCollection<V> collection = getEntityCollection();
         BulkWriteResult writeResult = collection.bulkWrite(updateOneModelList);
         return writeResult.wasAcknowledged();
     }
@@ -109,6 +145,24 @@ public class CacheMongoDBSource<K, V extends IData<K>> extends CacheDbSource<K,
         return MongoDBQueryUtil.getCollection(getCacheUniqueId().getName());
     }
 
+    @Override
+    public byte[] encodeSnapshot(V value) {
+        return classCodec.encodeBytes(value);
+    }
+
+    @Override
+    public V decodeSnapshot(byte[] snapshot) {
+        return classCodec.decodeBytes(snapshot);
+    }
+
+    public MongoCollection<V> getEntityCollection(){
+        return MongoDBQueryUtil.getCollection(getCacheUniqueId().getName(), classCodec);
+    }
+
+    public MongoDBClassCodec<V> getClassCodec() {
+        return classCodec;
+    }
+
     @Override
     public ICacheDelaySource<K, V> createDelayUpdateSource(ICacheExecutor executor) {
         return new CacheDelayMongoDBSource<>(this, executor);
@@ -6,6 +6,7 @@ import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
 import java.util.Collection;
 import java.util.List;
@@ -28,6 +29,11 @@ public class CacheMongoDBUtil {
         return new UpdateOneModel<>(queryDocument, document, UPDATE_OPTIONS);
     }
 
+    public static <T> UpdateOneModel<T> createUpdateOneModel(Collection<CacheKeyValue> keyValue, Bson update) {
+        Document queryDocument = getQueryDocument(keyValue);
+        return new UpdateOneModel<>(queryDocument, update, UPDATE_OPTIONS);
+    }
+
     public static DeleteOneModel<Document> createDeleteOneModel(List<CacheKeyValue> keyValue) {
         Document document = getQueryDocument(keyValue);
         return new DeleteOneModel<>(document);
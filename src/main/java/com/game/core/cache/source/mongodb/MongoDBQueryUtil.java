@@ -4,15 +4,22 @@ import com.game.common.config.EvnCoreConfigs;
 import com.game.common.config.EvnCoreType;
 import com.game.common.config.IEvnConfig;
 import com.game.core.cache.CacheKeyValue;
+import com.game.core.cache.mapper.FieldAnnotation;
+import com.game.core.cache.mapper.IClassAnnotation;
 import com.game.core.db.mongodb.MongoDbManager;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.UpdateOptions;
 import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,17 +38,78 @@ public class MongoDBQueryUtil {
     }
 
     public static Collection<Map<String, Object>> queryAll(MongoCollection<Document> collection, List<CacheKeyValue> keyValue) {
+        return queryAll(collection, keyValue, null);
+    }
+
+    /**
+     * @param collection
+     * @param keyValue
+     * @param projection 只返回的字段，null表示全部字段
+     * @return
+     */
+    public static Collection<Map<String, Object>> queryAll(MongoCollection<Document> collection, List<CacheKeyValue> keyValue, Bson projection) {
         Document queryDocument = CacheMongoDBUtil.getQueryDocument(keyValue);
-        return queryAll(collection, queryDocument);
+        return find(collection, queryDocument, projection).into(new ArrayList<>());
+    }
+
+    /**
+     * 一次$in查询多个主键，按照主键分组返回
+     * @param collection
+     * @param primaryKeyName
+     * @param primaryKeys
+     * @param keyValue 除主键之外的附加键
+     * @param projection 需要包含主键，null表示全部字段
+     * @return
+     */
+    public static Map<Long, Collection<Map<String, Object>>> queryAll(MongoCollection<Document> collection, String primaryKeyName, Collection<Long> primaryKeys, List<CacheKeyValue> keyValue, Bson projection) {
+        Document queryDocument = CacheMongoDBUtil.getQueryDocument(keyValue);
+        queryDocument.append(primaryKeyName, new Document("$in", primaryKeys));
+        Map<Long, Collection<Map<String, Object>>> documentMap = new HashMap<>(primaryKeys.size());
+        for (long primaryKey : primaryKeys) {
+            documentMap.put(primaryKey, new ArrayList<>());
+        }
+        for (Document document : find(collection, queryDocument, projection)) {
+            Number primaryKey = (Number) document.get(primaryKeyName);
+            documentMap.computeIfAbsent(primaryKey.longValue(), key -> new ArrayList<>()).add(document);
+        }
+        return documentMap;
     }
 
-    private static Collection<Map<String, Object>> queryAll(MongoCollection<Document> collection,  Document queryDocument) {
-        FindIterable<Document> iterable = collection.find(queryDocument);
-        List<Map<String, Object>> documentList = new ArrayList<>();
-        for (Document document : iterable) {
-            documentList.add(document);
+    /**
+     * 游标按照batchSize分批拉取，遍历的时候逐条解码，不保存中间结果
+     * @param collection
+     * @param queryDocument
+     * @param projection null表示全部字段
+     * @param <T>
+     * @return
+     */
+    public static <T> FindIterable<T> find(MongoCollection<T> collection, Bson queryDocument, Bson projection) {
+        FindIterable<T> iterable = collection.find(queryDocument);
+        if (projection != null){
+            iterable.projection(projection);
         }
-        return documentList;
+        int batchSize = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getConfig("mongodb").getInt("batchSize");
+        if (batchSize > 0){
+            iterable.batchSize(batchSize);
+        }
+        return iterable;
+    }
+
+    /**
+     * 只查询实体类的字段，不返回_id
+     * @param classAnnotation
+     * @return 没有开启的时候返回null
+     */
+    public static Bson createProjection(IClassAnnotation classAnnotation){
+        if (!EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getConfig("mongodb").getBoolean("projection")){
+            return null;
+        }
+        Document projection = new Document();
+        for (FieldAnnotation fieldAnnotation : classAnnotation.getFiledAnnotationList()) {
+            projection.append(fieldAnnotation.getAnnotationName(), 1);
+        }
+        projection.append("_id", 0);
+        return projection;
     }
 
     public static MongoDatabase getDbDatabase(){
@@ -56,4 +124,17 @@ public class MongoDBQueryUtil {
         MongoDatabase dbDatabase = getDbDatabase();
         return dbDatabase.getCollection(name);
     }
+
+    /**
+     * 注册实体类的编解码器，读写直接使用实体类
+     * @param name
+     * @param codec
+     * @param <V>
+     * @return
+     */
+    public static <V> MongoCollection<V> getCollection(String name, Codec<V> codec){
+        MongoCollection<Document> collection = getCollection(name);
+        CodecRegistry codecRegistry = CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(codec), collection.getCodecRegistry());
+        return collection.withCodecRegistry(codecRegistry).withDocumentClass(codec.getEncoderClass());
+    }
 }
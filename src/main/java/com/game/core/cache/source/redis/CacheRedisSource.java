@@ -2,7 +2,6 @@ package com.game.core.cache.source.redis;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
-import com.alibaba.fastjson.serializer.SerializerFeature;
 import com.game.core.cache.CacheInformation;
 import com.game.core.cache.CacheName;
 import com.game.core.cache.CacheType;
@@ -11,6 +10,7 @@ import com.game.core.cache.data.DataCollection;
 import com.game.core.cache.data.DataPrivilegeUtil;
 import com.game.core.cache.data.IData;
 import com.game.core.cache.key.IKeyValueBuilder;
+import com.game.core.cache.mapper.redis.RedisBinaryCodec;
 import com.game.core.cache.source.CacheSource;
 import com.game.core.cache.source.ICacheDelaySource;
 import com.game.core.cache.source.executor.ICacheExecutor;
@@ -18,9 +18,12 @@ import com.game.core.db.redis.IRedisPipeline;
 import jodd.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.clients.jedis.util.SafeEncoder;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -38,36 +41,32 @@ public class CacheRedisSource<K, V extends IData<K>> extends CacheSource<K, V> i
 
     private static final String ExpiredName = "ttl.ex";
 
-    private static final SerializerFeature[] mySerializerFeatures = new SerializerFeature[] {
-            SerializerFeature.WriteMapNullValue,
-            SerializerFeature.WriteNullListAsEmpty,
-            SerializerFeature.WriteNullStringAsEmpty,
-            SerializerFeature.WriteDateUseDateFormat,
-            SerializerFeature.IgnoreNonFieldGetter,
-            SerializerFeature.IgnoreNonFieldGetter
-    };
-
     private final CacheInformation EMPTY_INFO = new CacheInformation();
+    /**
+     * 数据按照二进制格式保存，旧的JSON数据读取的时候兼容
+     */
+    private final RedisBinaryCodec<V> binaryCodec;
 
     public CacheRedisSource(ICacheUniqueId cacheUniqueId, IKeyValueBuilder<K> secondaryBuilder) {
         super(cacheUniqueId, secondaryBuilder);
+        this.binaryCodec = new RedisBinaryCodec<>(cacheUniqueId.getAClass(), cacheUniqueId, cacheUniqueId.getVersionId(), getCacheType().getConvertMapper());
     }
 
     @Override
     public V get(long primaryKey, K secondaryKey) {
         String keyString = getPrimaryRedisKey(primaryKey);
         String secondaryKeyVString = keyValueBuilder.toSecondaryKeyString(secondaryKey);
-        String string = RedisClientUtil.getRedisClient().hget(keyString, secondaryKeyVString);
-        return convert2VDataValue(string);
+        byte[] bytes = RedisClientUtil.getRedisClient().hgetBinary(keyString, secondaryKeyVString);
+        return convert2VDataValue(bytes);
     }
 
     @Override
     public List<V> getAll(long primaryKey) {
         String keyString = getPrimaryRedisKey(primaryKey);
-        Map<String, String> hgetAll = RedisClientUtil.getRedisClient().hgetAll(keyString);
-        List<String> stringList = hgetAll.entrySet().stream().filter(entry -> !CacheName.Names.contains(entry.getKey()))
-                .map( Map.Entry::getValue).collect(Collectors.toList());
-        return convert2VDataValue(stringList);
+        Map<byte[], byte[]> hgetAll = RedisClientUtil.getRedisClient().hgetAllBinary(keyString);
+        Map<String, byte[]> redisKeyValueMap = readRedisValueMap(hgetAll);
+        redisKeyValueMap.remove(RedisCollection.ExpiredName);
+        return convert2VDataValue(redisKeyValueMap.values());
     }
 
     @SuppressWarnings("unchecked")
@@ -78,20 +77,47 @@ public class CacheRedisSource<K, V extends IData<K>> extends CacheSource<K, V> i
         return readDataCollection(redisCollection);
     }
 
+    /**
+     * 一次管道执行所有主键的hgetAll，没有redis数据的主键不返回
+     * @param primaryKeys
+     * @return
+     */
+    @Override
+    public Map<Long, DataCollection<K, V>> getCollections(Collection<Long> primaryKeys) {
+        if (primaryKeys.isEmpty()){
+            return Collections.emptyMap();
+        }
+        List<Long> primaryKeyList = new ArrayList<>(primaryKeys);
+        List<Map.Entry<String, Object>> entryList = RedisClientUtil.getRedisClient().executeBatch(pipeline -> {
+            for (long primaryKey : primaryKeyList) {
+                executeRedisCommand(primaryKey, pipeline, getCacheUniqueId());
+            }
+        });
+        Map<Long, DataCollection<K, V>> collectionMap = new HashMap<>(primaryKeyList.size());
+        for (int i = 0; i < primaryKeyList.size(); i++) {
+            RedisCollection redisCollection = readRedisCollection(entryList.subList(i, i + 1));
+            DataCollection<K, V> collection = readDataCollection(redisCollection);
+            if (collection != null){
+                collectionMap.put(primaryKeyList.get(i), collection);
+            }
+        }
+        return collectionMap;
+    }
+
     @Override
     public boolean replaceOne(long primaryKey, V value) {
         String keyString = getPrimaryRedisKey(primaryKey);
         String secondaryKeyString = keyValueBuilder.toSecondaryKeyString(value.secondaryKey());
-        String jsonString = toJSONString(value);
-        RedisClientUtil.getRedisClient().hset(keyString, secondaryKeyString, jsonString);
+        Map<byte[], byte[]> redisKeyValueMap = Collections.singletonMap(SafeEncoder.encode(secondaryKeyString), toBytes(value));
+        RedisClientUtil.getRedisClient().hsetBinary(keyString, redisKeyValueMap);
         return true;
     }
 
     @Override
     public boolean replaceBatch(long primaryKey, Collection<V> values) {
         String keyString = getPrimaryRedisKey(primaryKey);
-        Map<String, String> redisKeyValueMap = values.stream().collect(Collectors.toMap(value -> keyValueBuilder.toSecondaryKeyString(value.secondaryKey()), this::toJSONString));
-        RedisClientUtil.getRedisClient().hset(keyString, redisKeyValueMap);
+        Map<byte[], byte[]> redisKeyValueMap = toRedisKeyValueMap(values);
+        RedisClientUtil.getRedisClient().hsetBinary(keyString, redisKeyValueMap);
         return true;
     }
 
@@ -138,17 +164,17 @@ public class CacheRedisSource<K, V extends IData<K>> extends CacheSource<K, V> i
             return true;
         }
         String keyString = getPrimaryRedisKey(primaryKey);
-        Map<String, String> redisKeyValueMap = values.stream().collect(Collectors.toMap(value -> keyValueBuilder.toSecondaryKeyString(value.secondaryKey()), this::toJSONString));
+        Map<byte[], byte[]> redisKeyValueMap = toRedisKeyValueMap(values);
         long expiredTime = information.getExpiredTime();
         if (expiredTime > 0) {
-            redisKeyValueMap.put(ExpiredName, String.valueOf(expiredTime));
+            redisKeyValueMap.put(SafeEncoder.encode(ExpiredName), SafeEncoder.encode(String.valueOf(expiredTime)));
             RedisClientUtil.getRedisClient().executeBatch(redisPipeline -> {
-                redisPipeline.hset(keyString, redisKeyValueMap);
+                redisPipeline.hsetBinary(keyString, redisKeyValueMap);
                 redisPipeline.pexpireAt(keyString, expiredTime);
             });
         }
         else {
-            RedisClientUtil.getRedisClient().hset(keyString, redisKeyValueMap);
+            RedisClientUtil.getRedisClient().hsetBinary(keyString, redisKeyValueMap);
         }
         return true;
     }
@@ -181,14 +207,39 @@ public class CacheRedisSource<K, V extends IData<K>> extends CacheSource<K, V> i
      * @param data
      * @return
      */
-    private String toJSONString(V data){
-        Map<String, Object> cacheValue = getConverter().convert2Cache(data);
-        cacheValue.put(CacheName.DataIndexBit.getKeyName(), data.getBitIndexBits());
-        return JSON.toJSONString(cacheValue, mySerializerFeatures);
+    private byte[] toBytes(V data){
+        return binaryCodec.encode(data, data.getBitIndexBits());
+    }
+
+    private Map<byte[], byte[]> toRedisKeyValueMap(Collection<V> values){
+        Map<byte[], byte[]> redisKeyValueMap = new HashMap<>(values.size() * 4 / 3 + 2);
+        for (V value : values) {
+            String secondaryKeyString = keyValueBuilder.toSecondaryKeyString(value.secondaryKey());
+            redisKeyValueMap.put(SafeEncoder.encode(secondaryKeyString), toBytes(value));
+        }
+        return redisKeyValueMap;
     }
 
     /**
      * 反序列化
+     * @param bytes
+     * @return
+     */
+    private V convert2VDataValue(byte[] bytes){
+        if (bytes == null || bytes.length == 0){
+            return null;
+        }
+        if (!RedisBinaryCodec.isBinary(bytes)){
+            return convert2VDataValue(SafeEncoder.encode(bytes));
+        }
+        long[] bitIndexBits = new long[1];
+        V value = binaryCodec.decode(bytes, bitIndexBits);
+        DataPrivilegeUtil.invokeSetBitValue(value, bitIndexBits[0]);
+        return value;
+    }
+
+    /**
+     * 旧的JSON格式
      * @param string
      * @return
      */
@@ -208,11 +259,11 @@ public class CacheRedisSource<K, V extends IData<K>> extends CacheSource<K, V> i
      * @param strings
      * @return
      */
-    private List<V> convert2VDataValue(Collection<String> strings){
-        if (strings == null || strings.isEmpty()){
+    private List<V> convert2VDataValue(Collection<byte[]> bytesList){
+        if (bytesList == null || bytesList.isEmpty()){
             return Collections.emptyList();
         }
-        return strings.stream().map(this::convert2VDataValue).collect(Collectors.toList());
+        return bytesList.stream().map(this::convert2VDataValue).collect(Collectors.toList());
     }
 
 
@@ -220,10 +271,10 @@ public class CacheRedisSource<K, V extends IData<K>> extends CacheSource<K, V> i
     private static class RedisCollection {
         public static final String ExpiredName = "ttl.expired";
 
-        private final Map<String, String> redisKeyValueMap;
+        private final Map<String, byte[]> redisKeyValueMap;
         private final CacheInformation cacheInformation;
 
-        public RedisCollection(Map<String, String> redisKeyValueMap, CacheInformation cacheInformation) {
+        public RedisCollection(Map<String, byte[]> redisKeyValueMap, CacheInformation cacheInformation) {
             this.redisKeyValueMap = redisKeyValueMap;
             this.cacheInformation = cacheInformation;
         }
@@ -232,7 +283,7 @@ public class CacheRedisSource<K, V extends IData<K>> extends CacheSource<K, V> i
             return redisKeyValueMap == null || redisKeyValueMap.isEmpty();
         }
 
-        public Collection<String> getRedisValues(){
+        public Collection<byte[]> getRedisValues(){
             return redisKeyValueMap.values();
         }
 
@@ -250,18 +301,35 @@ public class CacheRedisSource<K, V extends IData<K>> extends CacheSource<K, V> i
      */
     public static void executeRedisCommand(long primaryKey, IRedisPipeline redisPipeline, ICacheUniqueId cacheUniqueId){
         String redisKeyString = cacheUniqueId.getRedisKeyString(primaryKey);
-        redisPipeline.hgetAll(redisKeyString);
+        redisPipeline.hgetAllBinary(redisKeyString);
     }
 
 
     @SuppressWarnings("unchecked")
     public static RedisCollection readRedisCollection(List<Map.Entry<String, Object>> entryList){
-        Map<String, String> redisKeyValueMap = (Map<String, String>)entryList.get(0).getValue();
+        Map<String, byte[]> redisKeyValueMap = readRedisValueMap((Map<byte[], byte[]>)entryList.get(0).getValue());
         CacheInformation cacheInformation = new CacheInformation();
-        String expiredTime = redisKeyValueMap.remove(ExpiredName);
+        byte[] expiredTime = redisKeyValueMap.remove(RedisCollection.ExpiredName);
         if (expiredTime != null){
-            cacheInformation.updateCurrentTime(Long.parseLong(expiredTime));
+            cacheInformation.updateCurrentTime(Long.parseLong(SafeEncoder.encode(expiredTime)));
         }
         return new RedisCollection(redisKeyValueMap, cacheInformation);
     }
+
+    /**
+     * field转成字符串，去掉不是数据的field（过期时间保留给调用方）
+     * @param hgetAll
+     * @return
+     */
+    private static Map<String, byte[]> readRedisValueMap(Map<byte[], byte[]> hgetAll){
+        Map<String, byte[]> redisKeyValueMap = new HashMap<>(hgetAll.size() * 4 / 3 + 1);
+        for (Map.Entry<byte[], byte[]> entry : hgetAll.entrySet()) {
+            String field = SafeEncoder.encode(entry.getKey());
+            if (ExpiredName.equals(field) || CacheName.Names.contains(field)){
+                continue;
+            }
+            redisKeyValueMap.put(field, entry.getValue());
+        }
+        return redisKeyValueMap;
+    }
 }
@@ -0,0 +1,12 @@
+package com.game.core.cache.source.wal;
+
+public interface IWriteAheadLogReader {
+
+    /**
+     * @param segmentId 记录所在的分段
+     * @param primaryKey
+     * @param command
+     * @param body
+     */
+    void read(long segmentId, long primaryKey, byte command, byte[] body);
+}
@@ -0,0 +1,233 @@
+package com.game.core.cache.source.wal;
+
+import com.game.core.cache.exception.CacheException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 回写数据的预写日志：追加写入分段文件，定时force（组提交）
+ * 每个没有回写的PrimaryDelayCache持有它第一条记录所在分段的引用，
+ * 从最早的分段开始，引用全部释放之后删除文件
+ */
+public class WriteAheadLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private final File directory;
+    private final int segmentSize;
+    private final TreeMap<Long, WriteAheadLogSegment> segmentMap;
+    private WriteAheadLogSegment currentSegment;
+    /**
+     * 回放过程中不删除文件
+     */
+    private boolean replaying;
+
+    public WriteAheadLog(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segmentMap = new TreeMap<>();
+        this.replaying = false;
+        if (!directory.exists() && !directory.mkdirs()){
+            throw new CacheException("mkdir error:%s", directory.getAbsolutePath());
+        }
+        try {
+            File[] files = directory.listFiles((dir, name) -> name.endsWith(WriteAheadLogSegment.SUFFIX));
+            if (files != null){
+                Arrays.sort(files, Comparator.comparing(File::getName));
+                for (File file : files) {
+                    WriteAheadLogSegment segment = WriteAheadLogSegment.open(file);
+                    segmentMap.put(segment.getSegmentId(), segment);
+                }
+            }
+            //已经存在的分段只用来回放，新数据写入新的分段
+            long segmentId = segmentMap.isEmpty() ? 1 : segmentMap.lastKey() + 1;
+            this.currentSegment = WriteAheadLogSegment.create(directory, segmentId, segmentSize);
+            segmentMap.put(segmentId, currentSegment);
+        }
+        catch (IOException e) {
+            throw new CacheException("open wal error:%s", e, directory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 按照写入顺序回放所有校验通过的记录
+     * @param reader
+     */
+    public synchronized void replay(IWriteAheadLogReader reader){
+        replaying = true;
+        try {
+            for (WriteAheadLogSegment segment : new ArrayList<>(segmentMap.values())) {
+                if (segment == currentSegment){
+                    continue;
+                }
+                int count = replaySegment(segment, reader);
+                logger.info("{} replay count:{}", segment, count);
+            }
+        }
+        finally {
+            replaying = false;
+        }
+        deleteReleased();
+    }
+
+    private int replaySegment(WriteAheadLogSegment segment, IWriteAheadLogReader reader){
+        ByteBuffer buffer;
+        try {
+            buffer = segment.read();
+        }
+        catch (IOException e) {
+            logger.error("{} read error.", segment, e);
+            return 0;
+        }
+        CRC32 crc32 = new CRC32();
+        int count = 0;
+        while (buffer.remaining() >= WriteAheadLogSegment.HEADER_LENGTH + WriteAheadLogSegment.RECORD_FIXED_LENGTH){
+            int position = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < WriteAheadLogSegment.RECORD_FIXED_LENGTH || length > buffer.remaining()){
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(record);
+            crc32.reset();
+            crc32.update(record, 0, length);
+            if ((int)crc32.getValue() != checksum){
+                //写到一半崩溃的记录
+                logger.error("{} position:{} checksum error.", segment, position);
+                break;
+            }
+            ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+            long primaryKey = recordBuffer.getLong();
+            byte command = recordBuffer.get();
+            byte[] body = Arrays.copyOfRange(record, WriteAheadLogSegment.RECORD_FIXED_LENGTH, length);
+            reader.read(segment.getSegmentId(), primaryKey, command, body);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param primaryKey
+     * @param command
+     * @param body
+     * @throws CacheException 写入失败
+     */
+    public void append(long primaryKey, byte command, byte[] body){
+        int length = WriteAheadLogSegment.RECORD_FIXED_LENGTH + body.length;
+        CRC32 crc32 = new CRC32();
+        ByteBuffer fixed = ByteBuffer.allocate(WriteAheadLogSegment.RECORD_FIXED_LENGTH);
+        fixed.putLong(primaryKey).put(command);
+        crc32.update(fixed.array(), 0, WriteAheadLogSegment.RECORD_FIXED_LENGTH);
+        crc32.update(body, 0, body.length);
+        int checksum = (int)crc32.getValue();
+        synchronized (this){
+            int needLength = WriteAheadLogSegment.HEADER_LENGTH + length;
+            if (currentSegment.remaining() < needLength){
+                rollSegment(needLength);
+            }
+            try {
+                currentSegment.append(length, checksum, primaryKey, command, body);
+            }
+            catch (IOException e) {
+                throw new CacheException("%s primaryKey:%s append error.", e, currentSegment, primaryKey);
+            }
+        }
+    }
+
+    private void rollSegment(int needLength){
+        long segmentId = currentSegment.getSegmentId() + 1;
+        try {
+            currentSegment = WriteAheadLogSegment.create(directory, segmentId, Math.max(segmentSize, needLength));
+            segmentMap.put(segmentId, currentSegment);
+        }
+        catch (IOException e) {
+            throw new CacheException("create wal segment error:%s", e, segmentId);
+        }
+        deleteReleased();
+    }
+
+    /**
+     * 引用当前分段
+     * @return 分段id
+     */
+    public synchronized long acquire(){
+        currentSegment.retain();
+        return currentSegment.getSegmentId();
+    }
+
+    /**
+     * 引用指定的分段（调用方保证分段还没有释放）
+     * @param segmentId
+     * @return
+     */
+    public synchronized long acquire(long segmentId){
+        WriteAheadLogSegment segment = segmentMap.get(segmentId);
+        if (segment == null){
+            throw new CacheException("wal segment:%s not exist.", segmentId);
+        }
+        segment.retain();
+        return segmentId;
+    }
+
+    public synchronized void release(long segmentId){
+        WriteAheadLogSegment segment = segmentMap.get(segmentId);
+        if (segment == null){
+            logger.error("wal segment:{} not exist.", segmentId);
+            return;
+        }
+        if (segment.release() == 0){
+            deleteReleased();
+        }
+    }
+
+    /**
+     * 组提交：定时把脏页刷到磁盘
+     */
+    public void force(){
+        List<WriteAheadLogSegment> segmentList;
+        synchronized (this){
+            segmentList = new ArrayList<>(segmentMap.values());
+        }
+        for (WriteAheadLogSegment segment : segmentList) {
+            try {
+                segment.force();
+            }
+            catch (ClosedChannelException e) {
+                //已经删除的分段
+            }
+            catch (IOException e) {
+                logger.error("{} force error.", segment, e);
+            }
+        }
+    }
+
+    private void deleteReleased(){
+        if (replaying){
+            return;
+        }
+        while (!segmentMap.isEmpty()){
+            Map.Entry<Long, WriteAheadLogSegment> entry = segmentMap.firstEntry();
+            WriteAheadLogSegment segment = entry.getValue();
+            if (segment == currentSegment || segment.getRefCount() > 0){
+                return;
+            }
+            segmentMap.remove(entry.getKey());
+            if (!segment.delete()){
+                logger.error("{} delete error.", segment);
+            }
+        }
+    }
+}
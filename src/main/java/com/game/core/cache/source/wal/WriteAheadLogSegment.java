@@ -0,0 +1,143 @@
+package com.game.core.cache.source.wal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 预写日志的一个分段文件，通过FileChannel追加写入（不使用内存映射，删除的时候关闭通道即可释放文件）
+ * 记录格式：[int 长度][int crc32][long primaryKey][byte command][body]，文件结束或者校验不通过表示结束
+ */
+class WriteAheadLogSegment {
+
+    static final int HEADER_LENGTH = 8;
+    static final int RECORD_FIXED_LENGTH = 9;
+    static final String SUFFIX = ".wal";
+
+    private final long segmentId;
+    private final File file;
+    private final FileChannel channel;
+    private final int capacity;
+    /**
+     * 下一条记录写入的位置，调用方加锁
+     */
+    private int position;
+    /**
+     * 还没有回写的PrimaryDelayCache数量
+     */
+    private int refCount;
+    private volatile boolean dirty;
+
+    private WriteAheadLogSegment(long segmentId, File file, FileChannel channel, int capacity, int position) {
+        this.segmentId = segmentId;
+        this.file = file;
+        this.channel = channel;
+        this.capacity = capacity;
+        this.position = position;
+        this.refCount = 0;
+        this.dirty = false;
+    }
+
+    static WriteAheadLogSegment create(File directory, long segmentId, int capacity) throws IOException {
+        File file = new File(directory, fileName(segmentId));
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new WriteAheadLogSegment(segmentId, file, channel, capacity, 0);
+    }
+
+    static WriteAheadLogSegment open(File file) throws IOException {
+        String name = file.getName();
+        long segmentId = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int length = (int)channel.size();
+        return new WriteAheadLogSegment(segmentId, file, channel, length, length);
+    }
+
+    static String fileName(long segmentId){
+        return String.format("%020d%s", segmentId, SUFFIX);
+    }
+
+    long getSegmentId() {
+        return segmentId;
+    }
+
+    int remaining(){
+        return capacity - position;
+    }
+
+    /**
+     * 调用方保证空间足够并且加锁
+     * 一条记录一次写入，写到一半崩溃的时候校验不通过
+     */
+    void append(int length, int checksum, long primaryKey, byte command, byte[] body) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + length);
+        buffer.putInt(length);
+        buffer.putInt(checksum);
+        buffer.putLong(primaryKey);
+        buffer.put(command);
+        buffer.put(body);
+        buffer.flip();
+        int writePosition = position;
+        while (buffer.hasRemaining()){
+            writePosition += channel.write(buffer, writePosition);
+        }
+        position = writePosition;
+        dirty = true;
+    }
+
+    /**
+     * 读取已经写入的全部数据（回放使用）
+     * @return
+     * @throws IOException
+     */
+    ByteBuffer read() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(position);
+        while (buffer.hasRemaining()){
+            if (channel.read(buffer, buffer.position()) < 0){
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    void force() throws IOException {
+        if (!dirty){
+            return;
+        }
+        dirty = false;
+        channel.force(false);
+    }
+
+    int retain(){
+        return ++refCount;
+    }
+
+    int release(){
+        return --refCount;
+    }
+
+    int getRefCount() {
+        return refCount;
+    }
+
+    /**
+     * 先关闭通道再删除文件
+     * @return
+     */
+    boolean delete(){
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            return false;
+        }
+        return file.delete();
+    }
+
+    @Override
+    public String toString() {
+        return file.getAbsolutePath();
+    }
+}
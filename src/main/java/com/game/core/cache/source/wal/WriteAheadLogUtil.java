@@ -0,0 +1,53 @@
+package com.game.core.cache.source.wal;
+
+import com.game.common.config.EvnCoreConfigs;
+import com.game.common.config.EvnCoreType;
+import com.game.common.config.IEvnConfig;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.io.File;
+import java.util.Map;
+
+public final class WriteAheadLogUtil {
+
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+    private WriteAheadLogUtil() {
+    }
+
+    /**
+     * 没有开启的时候返回null
+     * @param name
+     * @return
+     */
+    public static WriteAheadLog createWriteAheadLog(String name){
+        IEvnConfig walConfig = EvnCoreConfigs.getInstance(EvnCoreType.CACHE).getConfig("flush.wal");
+        if (walConfig == null || !walConfig.getBoolean("enable")){
+            return null;
+        }
+        File directory = new File(walConfig.getString("path"), name);
+        return new WriteAheadLog(directory, walConfig.getInt("segmentSize"));
+    }
+
+    /**
+     * 缓存数据编码成BSON，保留数据类型
+     * @param cacheValue
+     * @return
+     */
+    public static byte[] encode(Map<String, Object> cacheValue){
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            DOCUMENT_CODEC.encode(writer, new Document(cacheValue), EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    public static Map<String, Object> decode(byte[] bytes){
+        return new RawBsonDocument(bytes).decode(DOCUMENT_CODEC);
+    }
+}
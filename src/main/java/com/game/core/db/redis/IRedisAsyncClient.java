@@ -0,0 +1,35 @@
+package com.game.core.db.redis;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 返回 CompletableFuture 的命令，调用的线程不等待结果
+ */
+public interface IRedisAsyncClient {
+
+    CompletableFuture<String> getAsync(String key);
+
+    CompletableFuture<String> setAsync(String key, String value);
+
+    CompletableFuture<Long> pttlAsync(String key);
+
+    CompletableFuture<Long> pexpireAtAsync(String key, long millisecondsTimestamp);
+
+    CompletableFuture<String> hgetAsync(String key, String field);
+
+    CompletableFuture<List<String>> hmgetAsync(String key, String... fields);
+
+    CompletableFuture<Map<String, String>> hgetAllAsync(String key);
+
+    CompletableFuture<Long> hsetAsync(String key, Map<String, String> hash);
+
+    CompletableFuture<Long> hdelAsync(String key, String... fields);
+
+    CompletableFuture<byte[]> hgetBinaryAsync(String key, String field);
+
+    CompletableFuture<Map<byte[], byte[]>> hgetAllBinaryAsync(String key);
+
+    CompletableFuture<Long> hsetBinaryAsync(String key, Map<byte[], byte[]> hash);
+}
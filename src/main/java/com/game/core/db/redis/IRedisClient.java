@@ -98,5 +98,14 @@ public interface IRedisClient {
 
     Map<String, String> hgetAll(String key);
 
+    /**
+     * 二进制的hash值，field依然使用字符串（UTF-8）
+     */
+    Long hsetBinary(String key, Map<byte[], byte[]> hash);
+
+    byte[] hgetBinary(String key, String field);
+
+    Map<byte[], byte[]> hgetAllBinary(String key);
+
     List<Map.Entry<String, Object>> executeBatch(Consumer<IRedisPipeline> consumer);
 }
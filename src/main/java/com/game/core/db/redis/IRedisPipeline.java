@@ -10,6 +10,10 @@ public interface IRedisPipeline {
 
     void hset(final String key, final Map<String, String> hash);
 
+    void hgetAllBinary(String key);
+
+    void hsetBinary(String key, Map<byte[], byte[]> hash);
+
     void ttl(String key);
 
     void pttl(String key);
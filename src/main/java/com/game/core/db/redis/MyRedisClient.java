@@ -2,6 +2,7 @@ package com.game.core.db.redis;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.SafeEncoder;
 
 import java.util.Collection;
 import java.util.List;
@@ -236,6 +237,21 @@ public abstract class MyRedisClient implements IRedisClient {
         return runCommand(key, jedis -> jedis.hgetAll(key));
     }
 
+    @Override
+    public Long hsetBinary(String key, Map<byte[], byte[]> hash) {
+        return runCommand(key, jedis -> jedis.hset(SafeEncoder.encode(key), hash));
+    }
+
+    @Override
+    public byte[] hgetBinary(String key, String field) {
+        return runCommand(key, jedis -> jedis.hget(SafeEncoder.encode(key), SafeEncoder.encode(field)));
+    }
+
+    @Override
+    public Map<byte[], byte[]> hgetAllBinary(String key) {
+        return runCommand(key, jedis -> jedis.hgetAll(SafeEncoder.encode(key)));
+    }
+
     @Override
     public List<Map.Entry<String, Object>> executeBatch(Consumer<IRedisPipeline> consumer) {
         return null;
@@ -9,6 +9,7 @@ import redis.clients.jedis.Response;
 import redis.clients.jedis.ShardedJedis;
 import redis.clients.jedis.ShardedJedisPipeline;
 import redis.clients.jedis.ShardedJedisPool;
+import redis.clients.jedis.util.SafeEncoder;
 
 import java.util.AbstractMap;
 import java.util.ArrayList;
@@ -139,6 +140,16 @@ public class MyShardedJedisPool extends MyJedisClientPool<ShardedJedis> {
             responseList.add(new AbstractMap.SimpleEntry<>(key, pipeline.hset(key, hash)));
         }
 
+        @Override
+        public void hgetAllBinary(String key) {
+            responseList.add(new AbstractMap.SimpleEntry<>(key, pipeline.hgetAll(SafeEncoder.encode(key))));
+        }
+
+        @Override
+        public void hsetBinary(String key, Map<byte[], byte[]> hash) {
+            responseList.add(new AbstractMap.SimpleEntry<>(key, pipeline.hset(SafeEncoder.encode(key), hash)));
+        }
+
         @Override
         public void ttl(String key) {
             responseList.add(new AbstractMap.SimpleEntry<>(key, pipeline.ttl(key)));
@@ -0,0 +1,602 @@
+package com.game.core.db.redis;
+
+import com.game.common.config.IEvnConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.SafeEncoder;
+import redis.clients.jedis.util.ShardInfo;
+import redis.clients.jedis.util.Sharded;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 每个分片一个连接，所有线程的命令排队之后由连接线程合并成 pipeline 发送
+ * 调用的线程不占用连接，连接池的大小不再限制并发；分片的规则和 ShardedJedis 一致
+ */
+public class MyShardedPipelineClient implements IRedisClient, IRedisAsyncClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(MyShardedPipelineClient.class);
+
+    interface IPipelineCommand<T> {
+        Response<T> execute(Pipeline pipeline);
+    }
+
+    private Sharded<PipelineConnection, PipelineShardInfo> sharded;
+
+    public MyShardedPipelineClient(IEvnConfig redisConfig) {
+        reload(redisConfig);
+    }
+
+    @Override
+    public synchronized void reload(IEvnConfig redisConfig) {
+        int batchCount = redisConfig.getInt("pipelineBatch");
+        List<IEvnConfig> addressConfigList = redisConfig.getConfigList("sharding");
+        List<PipelineShardInfo> shardInfoList = addressConfigList.stream().map( config -> {
+            JedisShardInfo jedisShardInfo = new JedisShardInfo(config.getString("host"), config.getInt("port"));
+            if (config.hasPath("password")) {
+                String password = config.getString("password");
+                if (!password.isEmpty()){
+                    jedisShardInfo.setPassword(password);
+                }
+            }
+            return new PipelineShardInfo(jedisShardInfo, batchCount);
+        }).collect(Collectors.toList());
+        this.destroy();
+        this.sharded = new Sharded<>(shardInfoList);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (sharded == null) {
+            return;
+        }
+        for (PipelineConnection connection : sharded.getAllShards()) {
+            connection.close();
+        }
+        sharded = null;
+    }
+
+    protected <T> CompletableFuture<T> asyncCommand(String key, IPipelineCommand<T> command){
+        Sharded<PipelineConnection, PipelineShardInfo> current = sharded;
+        if (current == null){
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(new RedisException("redis client destroyed. key:%s", key));
+            return future;
+        }
+        return current.getShard(key).submit(command);
+    }
+
+    protected <T> T syncCommand(String key, IPipelineCommand<T> command){
+        return join(key, asyncCommand(key, command));
+    }
+
+    private static <T> T join(String key, CompletableFuture<T> future){
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            throw new RedisException("redis command error. key:%s", e.getCause(), key);
+        }
+    }
+
+    @Override
+    public List<Map.Entry<String, Object>> executeBatch(Consumer<IRedisPipeline> consumer) {
+        MyRedisPipeline redisPipeline = new MyRedisPipeline();
+        consumer.accept(redisPipeline);
+        return redisPipeline.syncResponse();
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String key) {
+        return asyncCommand(key, pipeline -> pipeline.get(key));
+    }
+
+    @Override
+    public CompletableFuture<String> setAsync(String key, String value) {
+        return asyncCommand(key, pipeline -> pipeline.set(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> pttlAsync(String key) {
+        return asyncCommand(key, pipeline -> pipeline.pttl(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> pexpireAtAsync(String key, long millisecondsTimestamp) {
+        return asyncCommand(key, pipeline -> pipeline.pexpireAt(key, millisecondsTimestamp));
+    }
+
+    @Override
+    public CompletableFuture<String> hgetAsync(String key, String field) {
+        return asyncCommand(key, pipeline -> pipeline.hget(key, field));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hmgetAsync(String key, String... fields) {
+        return asyncCommand(key, pipeline -> pipeline.hmget(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> hgetAllAsync(String key) {
+        return asyncCommand(key, pipeline -> pipeline.hgetAll(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> hsetAsync(String key, Map<String, String> hash) {
+        return asyncCommand(key, pipeline -> pipeline.hset(key, hash));
+    }
+
+    @Override
+    public CompletableFuture<Long> hdelAsync(String key, String... fields) {
+        return asyncCommand(key, pipeline -> pipeline.hdel(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> hgetBinaryAsync(String key, String field) {
+        return asyncCommand(key, pipeline -> pipeline.hget(SafeEncoder.encode(key), SafeEncoder.encode(field)));
+    }
+
+    @Override
+    public CompletableFuture<Map<byte[], byte[]>> hgetAllBinaryAsync(String key) {
+        return asyncCommand(key, pipeline -> pipeline.hgetAll(SafeEncoder.encode(key)));
+    }
+
+    @Override
+    public CompletableFuture<Long> hsetBinaryAsync(String key, Map<byte[], byte[]> hash) {
+        return asyncCommand(key, pipeline -> pipeline.hset(SafeEncoder.encode(key), hash));
+    }
+
+    @Override
+    public String set(String key, String value) {
+        return syncCommand(key, pipeline -> pipeline.set(key, value));
+    }
+
+    @Override
+    public String set(String key, String value, SetParams params) {
+        return syncCommand(key, pipeline -> pipeline.set(key, value, params));
+    }
+
+    @Override
+    public String get(String key) {
+        return syncCommand(key, pipeline -> pipeline.get(key));
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return syncCommand(key, pipeline -> pipeline.exists(key));
+    }
+
+    @Override
+    public Long persist(String key) {
+        return syncCommand(key, pipeline -> pipeline.persist(key));
+    }
+
+    @Override
+    public String type(String key) {
+        return syncCommand(key, pipeline -> pipeline.type(key));
+    }
+
+    @Override
+    public Long expire(String key, int seconds) {
+        return syncCommand(key, pipeline -> pipeline.expire(key, seconds));
+    }
+
+    @Override
+    public Long pexpire(String key, long milliseconds) {
+        return syncCommand(key, pipeline -> pipeline.pexpire(key, milliseconds));
+    }
+
+    @Override
+    public Long expireAt(String key, long unixTime) {
+        return syncCommand(key, pipeline -> pipeline.expireAt(key, unixTime));
+    }
+
+    @Override
+    public Long pexpireAt(String key, long millisecondsTimestamp) {
+        return syncCommand(key, pipeline -> pipeline.pexpireAt(key, millisecondsTimestamp));
+    }
+
+    @Override
+    public Long ttl(String key) {
+        return syncCommand(key, pipeline -> pipeline.ttl(key));
+    }
+
+    @Override
+    public Long pttl(String key) {
+        return syncCommand(key, pipeline -> pipeline.pttl(key));
+    }
+
+    @Override
+    public Boolean setbit(String key, long offset, boolean value) {
+        return syncCommand(key, pipeline -> pipeline.setbit(key, offset, value));
+    }
+
+    @Override
+    public Boolean setbit(String key, long offset, String value) {
+        return syncCommand(key, pipeline -> pipeline.setbit(SafeEncoder.encode(key), offset, SafeEncoder.encode(value)));
+    }
+
+    @Override
+    public Boolean getbit(String key, long offset) {
+        return syncCommand(key, pipeline -> pipeline.getbit(key, offset));
+    }
+
+    @Override
+    public Long setrange(String key, long offset, String value) {
+        return syncCommand(key, pipeline -> pipeline.setrange(key, offset, value));
+    }
+
+    @Override
+    public String getrange(String key, long startOffset, long endOffset) {
+        return syncCommand(key, pipeline -> pipeline.getrange(key, startOffset, endOffset));
+    }
+
+    @Override
+    public String getSet(String key, String value) {
+        return syncCommand(key, pipeline -> pipeline.getSet(key, value));
+    }
+
+    @Override
+    public Long setnx(String key, String value) {
+        return syncCommand(key, pipeline -> pipeline.setnx(key, value));
+    }
+
+    @Override
+    public String setex(String key, int seconds, String value) {
+        return syncCommand(key, pipeline -> pipeline.setex(key, seconds, value));
+    }
+
+    @Override
+    public String psetex(String key, long milliseconds, String value) {
+        return syncCommand(key, pipeline -> pipeline.psetex(key, milliseconds, value));
+    }
+
+    @Override
+    public Long decrBy(String key, long integer) {
+        return syncCommand(key, pipeline -> pipeline.decrBy(key, integer));
+    }
+
+    @Override
+    public Long decr(String key) {
+        return syncCommand(key, pipeline -> pipeline.decr(key));
+    }
+
+    @Override
+    public Long incrBy(String key, long integer) {
+        return syncCommand(key, pipeline -> pipeline.incrBy(key, integer));
+    }
+
+    @Override
+    public Double incrByFloat(String key, double value) {
+        return syncCommand(key, pipeline -> pipeline.incrByFloat(key, value));
+    }
+
+    @Override
+    public Long incr(String key) {
+        return syncCommand(key, pipeline -> pipeline.incr(key));
+    }
+
+    @Override
+    public Long append(String key, String value) {
+        return syncCommand(key, pipeline -> pipeline.append(key, value));
+    }
+
+    @Override
+    public String substr(String key, int start, int end) {
+        return syncCommand(key, pipeline -> pipeline.substr(key, start, end));
+    }
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        return syncCommand(key, pipeline -> pipeline.hset(key, field, value));
+    }
+
+    @Override
+    public Long hset(String key, Map<String, String> hash) {
+        return syncCommand(key, pipeline -> pipeline.hset(key, hash));
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return syncCommand(key, pipeline -> pipeline.hget(key, field));
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        return syncCommand(key, pipeline -> pipeline.hsetnx(key, field, value));
+    }
+
+    @Override
+    public String hmset(String key, Map<String, String> hash) {
+        return syncCommand(key, pipeline -> pipeline.hmset(key, hash));
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return syncCommand(key, pipeline -> pipeline.hmget(key, fields));
+    }
+
+    @Override
+    public Long hincrBy(String key, String field, long value) {
+        return syncCommand(key, pipeline -> pipeline.hincrBy(key, field, value));
+    }
+
+    @Override
+    public Double hincrByFloat(String key, String field, double value) {
+        return syncCommand(key, pipeline -> pipeline.hincrByFloat(key, field, value));
+    }
+
+    @Override
+    public Boolean hexists(String key, String field) {
+        return syncCommand(key, pipeline -> pipeline.hexists(key, field));
+    }
+
+    @Override
+    public Long hdel(String key, String... field) {
+        return syncCommand(key, pipeline -> pipeline.hdel(key, field));
+    }
+
+    @Override
+    public Long hlen(String key) {
+        return syncCommand(key, pipeline -> pipeline.hlen(key));
+    }
+
+    @Override
+    public Set<String> hkeys(String key) {
+        return syncCommand(key, pipeline -> pipeline.hkeys(key));
+    }
+
+    @Override
+    public List<String> hvals(String key) {
+        return syncCommand(key, pipeline -> pipeline.hvals(key));
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return syncCommand(key, pipeline -> pipeline.hgetAll(key));
+    }
+
+    @Override
+    public Long hsetBinary(String key, Map<byte[], byte[]> hash) {
+        return syncCommand(key, pipeline -> pipeline.hset(SafeEncoder.encode(key), hash));
+    }
+
+    @Override
+    public byte[] hgetBinary(String key, String field) {
+        return syncCommand(key, pipeline -> pipeline.hget(SafeEncoder.encode(key), SafeEncoder.encode(field)));
+    }
+
+    @Override
+    public Map<byte[], byte[]> hgetAllBinary(String key) {
+        return syncCommand(key, pipeline -> pipeline.hgetAll(SafeEncoder.encode(key)));
+    }
+
+
+    public class MyRedisPipeline implements IRedisPipeline {
+
+        private final List<Map.Entry<String, CompletableFuture<?>>> futureList;
+
+        public MyRedisPipeline() {
+            this.futureList = new ArrayList<>();
+        }
+
+        @Override
+        public void hgetAll(String key) {
+            futureList.add(new AbstractMap.SimpleEntry<>(key, hgetAllAsync(key)));
+        }
+
+        @Override
+        public void hset(String key, String field, String value) {
+            futureList.add(new AbstractMap.SimpleEntry<>(key, asyncCommand(key, pipeline -> pipeline.hset(key, field, value))));
+        }
+
+        @Override
+        public void hset(String key, Map<String, String> hash) {
+            futureList.add(new AbstractMap.SimpleEntry<>(key, hsetAsync(key, hash)));
+        }
+
+        @Override
+        public void hgetAllBinary(String key) {
+            futureList.add(new AbstractMap.SimpleEntry<>(key, hgetAllBinaryAsync(key)));
+        }
+
+        @Override
+        public void hsetBinary(String key, Map<byte[], byte[]> hash) {
+            futureList.add(new AbstractMap.SimpleEntry<>(key, hsetBinaryAsync(key, hash)));
+        }
+
+        @Override
+        public void ttl(String key) {
+            futureList.add(new AbstractMap.SimpleEntry<>(key, asyncCommand(key, pipeline -> pipeline.ttl(key))));
+        }
+
+        @Override
+        public void pttl(String key) {
+            futureList.add(new AbstractMap.SimpleEntry<>(key, pttlAsync(key)));
+        }
+
+        @Override
+        public void pexpireAt(String key, long millisecondsTimestamp) {
+            futureList.add(new AbstractMap.SimpleEntry<>(key, pexpireAtAsync(key, millisecondsTimestamp)));
+        }
+
+        public List<Map.Entry<String, Object>> syncResponse() {
+            List<Map.Entry<String, Object>> resultList = new ArrayList<>(futureList.size());
+            for (Map.Entry<String, CompletableFuture<?>> entry : futureList) {
+                Object object = join(entry.getKey(), entry.getValue());
+                resultList.add(new AbstractMap.SimpleEntry<>(entry.getKey(), object));
+            }
+            return resultList;
+        }
+    }
+
+    /**
+     * 名字和权重与 JedisShardInfo 一致，保证和 ShardedJedis 分到同一个节点
+     */
+    private static final class PipelineShardInfo extends ShardInfo<PipelineConnection> {
+
+        private final JedisShardInfo jedisShardInfo;
+        private final int batchCount;
+
+        private PipelineShardInfo(JedisShardInfo jedisShardInfo, int batchCount) {
+            super(jedisShardInfo.getWeight());
+            this.jedisShardInfo = jedisShardInfo;
+            this.batchCount = batchCount;
+        }
+
+        @Override
+        protected PipelineConnection createResource() {
+            return new PipelineConnection(jedisShardInfo, batchCount);
+        }
+
+        @Override
+        public String getName() {
+            return jedisShardInfo.getName();
+        }
+    }
+
+    private static final class PipelineCommand<T> {
+
+        private final IPipelineCommand<T> command;
+        private final CompletableFuture<T> future;
+
+        private PipelineCommand(IPipelineCommand<T> command) {
+            this.command = command;
+            this.future = new CompletableFuture<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Response<?> response){
+            try {
+                future.complete((T) response.get());
+            }
+            catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 单个分片的连接，只有连接线程读写 socket
+     */
+    private static final class PipelineConnection implements Runnable {
+
+        private final JedisShardInfo shardInfo;
+        private final int batchCount;
+        private final LinkedBlockingQueue<PipelineCommand<?>> commandQueue;
+        private final Thread thread;
+        private volatile boolean running;
+        private Jedis jedis;
+
+        private PipelineConnection(JedisShardInfo shardInfo, int batchCount) {
+            this.shardInfo = shardInfo;
+            this.batchCount = Math.max(1, batchCount);
+            this.commandQueue = new LinkedBlockingQueue<>();
+            this.running = true;
+            this.thread = new Thread(this, "redis-pipeline-" + shardInfo.getHost() + ":" + shardInfo.getPort());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private <T> CompletableFuture<T> submit(IPipelineCommand<T> command){
+            PipelineCommand<T> pipelineCommand = new PipelineCommand<>(command);
+            commandQueue.add(pipelineCommand);
+            if (!running && commandQueue.remove(pipelineCommand)){
+                pipelineCommand.future.completeExceptionally(new RedisException("redis connection closed. node:%s", createKey()));
+            }
+            return pipelineCommand.future;
+        }
+
+        @Override
+        public void run() {
+            List<PipelineCommand<?>> commandList = new ArrayList<>(batchCount);
+            while (running) {
+                try {
+                    commandList.add(commandQueue.take());
+                }
+                catch (InterruptedException e) {
+                    break;
+                }
+                commandQueue.drainTo(commandList, batchCount - 1);
+                execute(commandList);
+                commandList.clear();
+            }
+            commandQueue.drainTo(commandList);
+            for (PipelineCommand<?> pipelineCommand : commandList) {
+                pipelineCommand.future.completeExceptionally(new RedisException("redis connection closed. node:%s", createKey()));
+            }
+            closeJedis();
+        }
+
+        private void execute(List<PipelineCommand<?>> commandList){
+            try {
+                if (jedis == null){
+                    jedis = shardInfo.createResource();
+                }
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<?>> responseList = new ArrayList<>(commandList.size());
+                for (PipelineCommand<?> pipelineCommand : commandList) {
+                    Response<?> response = null;
+                    try {
+                        response = pipelineCommand.command.execute(pipeline);
+                    }
+                    catch (RuntimeException e) {
+                        pipelineCommand.future.completeExceptionally(e);     //参数错误，没有发送
+                    }
+                    responseList.add(response);
+                }
+                pipeline.sync();
+                for (int i = 0; i < commandList.size(); i++) {
+                    Response<?> response = responseList.get(i);
+                    if (response != null){
+                        commandList.get(i).complete(response);
+                    }
+                }
+            }
+            catch (Exception e) {
+                RedisClientKey clientKey = createKey();
+                logger.error("redis pipeline error. node:{} count:{}", clientKey, commandList.size(), e);
+                for (PipelineCommand<?> pipelineCommand : commandList) {
+                    pipelineCommand.future.completeExceptionally(new RedisException("redis pipeline error. node:%s", e, clientKey));
+                }
+                closeJedis();       //下一批重新连接
+            }
+        }
+
+        private void closeJedis(){
+            if (jedis == null){
+                return;
+            }
+            try {
+                jedis.close();
+            }
+            catch (Exception e) {
+                logger.error("redis close error. node:{}", createKey(), e);
+            }
+            jedis = null;
+        }
+
+        private RedisClientKey createKey(){
+            return new RedisClientKey(shardInfo.getHost(), shardInfo.getPort());
+        }
+
+        private void close(){
+            running = false;
+            thread.interrupt();
+        }
+    }
+}
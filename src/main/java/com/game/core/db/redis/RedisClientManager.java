@@ -42,10 +42,34 @@ public class RedisClientManager {
 
     private RedisClientManager(IEvnConfig redisConfig) {
         this.names = Collections.unmodifiableList(redisConfig.getList("names"));
-        this.client = new MyShardedJedisPool(redisConfig);
+        this.client = createClient(redisConfig);
+    }
+
+    /**
+     * pool: 每个命令借用连接池中的连接；pipeline: 每个分片一个连接，命令合并发送
+     * @param redisConfig
+     * @return
+     */
+    private static IRedisClient createClient(IEvnConfig redisConfig){
+        String clientType = redisConfig.hasPath("clientType") ? redisConfig.getString("clientType") : "pool";
+        if ("pipeline".equals(clientType)){
+            return new MyShardedPipelineClient(redisConfig);
+        }
+        if (!"pool".equals(clientType)){
+            logger.error("redis clientType:{} not support, use pool", clientType);
+        }
+        return new MyShardedJedisPool(redisConfig);
     }
 
     public IRedisClient getClient() {
         return client;
     }
+
+    /**
+     * 连接池的客户端不支持，返回null
+     * @return
+     */
+    public IRedisAsyncClient getAsyncClient() {
+        return client instanceof IRedisAsyncClient ? (IRedisAsyncClient) client : null;
+    }
 }
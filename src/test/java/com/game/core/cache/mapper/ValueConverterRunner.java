@@ -1,5 +1,8 @@
 package com.game.core.cache.mapper;
 
+import com.game.core.cache.data.LazyValue;
+import com.game.core.cache.mapper.redis.RedisConvertMapper;
+import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,6 +11,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ValueConverterRunner {
 
@@ -30,6 +34,72 @@ public class ValueConverterRunner {
         }
     }
 
+    @Test
+    public void primitive(){
+        for (ValueConvertMapper mapper : new ValueConvertMapper[]{new ValueConvertMapper(), new RedisConvertMapper()}) {
+            ILongValueConverter longConverter = (ILongValueConverter) mapper.getOrDefault(long.class);
+            IIntValueConverter intConverter = (IIntValueConverter) mapper.getOrDefault(int.class);
+            IIntValueConverter shortConverter = (IIntValueConverter) mapper.getOrDefault(short.class);
+            IIntValueConverter byteConverter = (IIntValueConverter) mapper.getOrDefault(byte.class);
+            for (long value : new long[]{0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE}) {
+                Assert.assertEquals(value, longConverter.decodeLong(longConverter.encodeLong(value)));
+                Assert.assertEquals(mapper.getOrDefault(long.class).encode(value), longConverter.encodeLong(value));
+            }
+            for (int value : new int[]{0, 1, -1, Byte.MAX_VALUE, Short.MIN_VALUE, Integer.MAX_VALUE}) {
+                Assert.assertEquals(value, intConverter.decodeInt(intConverter.encodeInt(value)));
+                Assert.assertEquals((short) value, shortConverter.decodeInt(shortConverter.encodeInt(value)));
+                Assert.assertEquals((byte) value, byteConverter.decodeInt(byteConverter.encodeInt(value)));
+            }
+            Assert.assertEquals(0L, longConverter.decodeLong(null));
+            Assert.assertEquals(0, intConverter.decodeInt(null));
+        }
+    }
+
+    public Map<Integer, List<Long>> typedMap;
+    public List<FinalClass> typedList;
+    public List<JsonClass> subclassList;
+    public List<Object> objectList;
+
+    @Test
+    public void typed() throws NoSuchFieldException {
+        Assert.assertTrue(TypedJsonValueConverter.isSupported(getClass().getField("typedMap").getGenericType()));
+        Assert.assertFalse(TypedJsonValueConverter.isSupported(getClass().getField("objectList").getGenericType()));
+        Assert.assertTrue(TypedJsonValueConverter.isSupported(getClass().getField("typedList").getGenericType()));
+        Assert.assertFalse(TypedJsonValueConverter.isSupported(getClass().getField("subclassList").getGenericType()));
+        TypedJsonValueConverter converter = new TypedJsonValueConverter(getClass().getField("typedMap").getGenericType());
+        Map<Integer, List<Long>> typedMap = new HashMap<>();
+        typedMap.put(1, Arrays.asList(2L, Long.MAX_VALUE));
+        Object encode = converter.encode(typedMap);
+        Assert.assertFalse(encode.toString().contains("@type"));
+        Assert.assertEquals(typedMap, converter.decode(encode));
+        //旧数据带有类名
+        Object legacy = new JsonValueConverter().encode(typedMap);
+        Assert.assertEquals(typedMap, converter.decode(legacy));
+    }
+
+    public LazyValue<Map<Integer, List<Long>>> lazyMap;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void lazy() throws NoSuchFieldException {
+        ValueConvertMapper mapper = new ValueConvertMapper();
+        ValueConverter<Object> converter = (ValueConverter<Object>) mapper.getOrDefault(getClass().getField("lazyMap").getGenericType());
+        Map<Integer, List<Long>> typedMap = new HashMap<>();
+        typedMap.put(1, Arrays.asList(2L, 3L));
+        Object encode = converter.encode(new LazyValue<>(typedMap));
+        LazyValue<Map<Integer, List<Long>>> lazyValue = (LazyValue<Map<Integer, List<Long>>>) converter.decode(encode);
+        Assert.assertFalse(lazyValue.isDecoded());
+        Assert.assertSame(encode, converter.encode(lazyValue));   //没有访问过原样写回
+        Assert.assertEquals(typedMap, lazyValue.get());
+        Assert.assertEquals(encode, converter.encode(lazyValue));
+        Assert.assertNotSame(converter.decode(null), converter.decode(null));
+    }
+
+    public static final class FinalClass{
+        public int id;
+        public List<Long> valueList;
+    }
+
     public static class JsonClass{
         public int id = 0;
         public List<Integer> idList;
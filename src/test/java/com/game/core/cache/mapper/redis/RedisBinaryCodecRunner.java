@@ -0,0 +1,113 @@
+package com.game.core.cache.mapper.redis;
+
+import com.game.core.cache.data.Data;
+import com.game.core.cache.mapper.ClassAnnotation;
+import com.game.core.cache.mapper.annotation.CacheFiled;
+import com.game.core.cache.mapper.annotation.CacheIndexes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class RedisBinaryCodecRunner {
+
+    private final RedisConvertMapper convertMapper = new RedisConvertMapper();
+
+    @Test
+    public void encodeAndDecode(){
+        RedisBinaryCodec<FullItem> codec = new RedisBinaryCodec<>(FullItem.class, ClassAnnotation.create(FullItem.class), 1, convertMapper);
+        FullItem item = new FullItem();
+        item.userId = Long.MIN_VALUE;
+        item.itemId = -7;
+        item.level = (short) 300;
+        item.locked = true;
+        item.rate = 0.25;
+        item.name = "物品";
+        item.attrs = Arrays.asList(1, 2, 3);
+        byte[] bytes = codec.encode(item, 0x5L);
+        Assert.assertTrue(RedisBinaryCodec.isBinary(bytes));
+
+        long[] bitIndexBits = new long[1];
+        FullItem decode = codec.decode(bytes, bitIndexBits);
+        Assert.assertEquals(0x5L, bitIndexBits[0]);
+        Assert.assertEquals(item.userId, decode.userId);
+        Assert.assertEquals(item.itemId, decode.itemId);
+        Assert.assertEquals(item.level, decode.level);
+        Assert.assertEquals(item.locked, decode.locked);
+        Assert.assertEquals(item.rate, decode.rate, 0);
+        Assert.assertEquals(item.name, decode.name);
+        Assert.assertEquals(item.attrs, decode.attrs);
+    }
+
+    @Test
+    public void decodeOtherVersion(){
+        RedisBinaryCodec<FullItem> fullCodec = new RedisBinaryCodec<>(FullItem.class, ClassAnnotation.create(FullItem.class), 1, convertMapper);
+        RedisBinaryCodec<PartItem> partCodec = new RedisBinaryCodec<>(PartItem.class, ClassAnnotation.create(PartItem.class), 2, convertMapper);
+        FullItem item = new FullItem();
+        item.userId = 10;
+        item.itemId = 20;
+        item.name = "name";
+        item.attrs = Arrays.asList(4, 5);
+
+        //删除的字段跳过，新增的字段使用默认值
+        PartItem partItem = partCodec.decode(fullCodec.encode(item, 0), new long[1]);
+        Assert.assertEquals(10, partItem.userId);
+        Assert.assertEquals("name", partItem.name);
+        Assert.assertEquals(0, partItem.count);
+
+        partItem.count = 30;
+        FullItem fullItem = fullCodec.decode(partCodec.encode(partItem, 0), new long[1]);
+        Assert.assertEquals(10, fullItem.userId);
+        Assert.assertEquals(0, fullItem.itemId);
+        Assert.assertEquals("name", fullItem.name);
+    }
+
+    @CacheIndexes(primaryKey = "userId", secondaryKeys = {"itemId"})
+    public static class FullItem extends Data<Integer> {
+
+        @CacheFiled(index = 0)
+        private long userId;
+
+        @CacheFiled(index = 1)
+        private int itemId;
+
+        @CacheFiled(index = 2)
+        private short level;
+
+        @CacheFiled(index = 3)
+        private boolean locked;
+
+        @CacheFiled(index = 4)
+        private double rate;
+
+        @CacheFiled(index = 5)
+        private String name;
+
+        @CacheFiled(index = 6)
+        private List<Integer> attrs;
+
+        @Override
+        public Integer secondaryKey() {
+            return itemId;
+        }
+    }
+
+    @CacheIndexes(primaryKey = "userId", secondaryKeys = {"name"})
+    public static class PartItem extends Data<String> {
+
+        @CacheFiled(index = 0)
+        private long userId;
+
+        @CacheFiled(index = 5)
+        private String name;
+
+        @CacheFiled(index = 7)
+        private long count;
+
+        @Override
+        public String secondaryKey() {
+            return name;
+        }
+    }
+}
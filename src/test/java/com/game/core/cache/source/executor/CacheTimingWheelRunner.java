@@ -0,0 +1,38 @@
+package com.game.core.cache.source.executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CacheTimingWheelRunner {
+
+    @Test
+    public void advance(){
+        long startTime = 1000000L;
+        long tickDuration = 100L;
+        CacheTimingWheel<Long> timingWheel = new CacheTimingWheel<>(tickDuration, startTime);
+        Random random = new Random(1);
+        List<Long> deadlineList = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            //覆盖所有层以及超出时间轮范围的情况
+            long deadline = startTime + (long)(Math.pow(random.nextDouble(), 4) * tickDuration * (1L << 25));
+            deadlineList.add(deadline);
+            timingWheel.schedule(deadline, deadline);
+        }
+        List<Long> expiredList = new ArrayList<>();
+        long currentTime = startTime;
+        while (expiredList.size() < deadlineList.size()){
+            currentTime += tickDuration * (1 + random.nextInt(5000));
+            long advanceTime = currentTime;
+            timingWheel.advance(currentTime, deadline -> {
+                Assert.assertTrue(deadline <= advanceTime);
+                Assert.assertTrue(deadline > advanceTime - tickDuration * 5000);
+                expiredList.add(deadline);
+            });
+        }
+        Assert.assertEquals(deadlineList.size(), expiredList.size());
+    }
+}
@@ -0,0 +1,52 @@
+package com.game.core.cache.source.wal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class WriteAheadLogRunner {
+
+    @Test
+    public void replay() throws Exception {
+        File directory = Files.createTempDirectory("wal").toFile();
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 4096);
+        long segmentId = writeAheadLog.acquire();
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> cacheValue = new HashMap<>();
+            cacheValue.put("userId", (long)i);
+            cacheValue.put("count", i);
+            cacheValue.put("name", "name" + i);
+            writeAheadLog.append(i, (byte)0, WriteAheadLogUtil.encode(cacheValue));
+        }
+        writeAheadLog.force();
+
+        Assert.assertEquals(1, segmentId);
+
+        //模拟重启：回放的数据持有第一个分段
+        List<Map<String, Object>> cacheValueList = new ArrayList<>();
+        WriteAheadLog replayLog = new WriteAheadLog(directory, 4096);
+        replayLog.replay((replaySegmentId, primaryKey, command, body) -> {
+            Map<String, Object> cacheValue = WriteAheadLogUtil.decode(body);
+            Assert.assertEquals(primaryKey, cacheValue.get("userId"));
+            if (cacheValueList.isEmpty()){
+                replayLog.acquire(replaySegmentId);
+            }
+            cacheValueList.add(cacheValue);
+        });
+        Assert.assertEquals(100, cacheValueList.size());
+        Assert.assertEquals(99, cacheValueList.get(99).get("count"));
+        Assert.assertEquals("name99", cacheValueList.get(99).get("name"));
+
+        //回写之后释放，再次重启时没有数据
+        replayLog.release(segmentId);
+        List<Long> primaryKeyList = new ArrayList<>();
+        new WriteAheadLog(directory, 4096).replay((replaySegmentId, primaryKey, command, body) -> primaryKeyList.add(primaryKey));
+        Assert.assertTrue(primaryKeyList.isEmpty());
+    }
+}